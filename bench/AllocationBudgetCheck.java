@@ -0,0 +1,169 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionListener;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Regression check of the allocation on the per-event path: drives a {@link MouseFollowAndResizePanel}
+ * with synthetic mouse movements on the EDT and fails if the bytes allocated per event after the warm-up
+ * exceed the budget. The budget is zero by default, as the panel and its targets should not allocate
+ * anything per event once the JIT has compiled them.
+ * <p>
+ * The events are created in advance and passed straight to the motion listeners of the panel, so only the handling
+ * is measured: the event queue itself allocates a reference to the current event on every dispatch.
+ * In the coalescing cases every event is followed by a frame applied directly. The panel sits in a container
+ * with a peer, which is validated after every event as a frame would be, so the layout of the target is measured too.
+ * Painting is not measured: it is done by the repaint manager, which is not part of the panel.
+ * <p>
+ * Allocation is read from the per-thread allocation counter of HotSpot. Exits with status 1 if a budget is exceeded:
+ * <pre>
+ * java -Djava.awt.headless=true -cp out AllocationBudgetCheck [--budget bytes] [--events N]
+ * </pre>
+ */
+public class AllocationBudgetCheck {
+    private static final int PANEL_SIZE = 1000;
+
+    /**
+     * Number of distinct precomputed mouse events; they are dispatched in a loop.
+     */
+    private static final int EVENT_COUNT = 256;
+
+    private static final int WARMUP_EVENTS = 200_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Accumulates the results of the cycles, so that they are not dead code.
+     */
+    static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        long budget = 0;
+        int events = 100_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--budget" -> budget = Long.parseLong(args[++i]);
+                case "--events" -> events = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("Per-thread allocation counters are not supported by this JVM");
+            System.exit(2);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        long perEventBudget = budget;
+        int measuredEvents = events;
+        boolean[] passed = {true};
+        SwingUtilities.invokeAndWait(() -> {
+            passed[0] &= check("direct, image target", false, false, false, perEventBudget, measuredEvents);
+            passed[0] &= check("coalescing, image target", true, false, false, perEventBudget, measuredEvents);
+            passed[0] &= check("coalescing, prediction", true, true, false, perEventBudget, measuredEvents);
+            passed[0] &= check("coalescing, adaptive quality", true, false, true, perEventBudget, measuredEvents);
+            passed[0] &= check("direct, everything enabled", false, true, true, perEventBudget, measuredEvents);
+            passed[0] &= check("coalescing, everything enabled", true, true, true, perEventBudget, measuredEvents);
+        });
+        System.out.println(passed[0] ? "All budgets met" : "Allocation budget exceeded");
+        System.exit(passed[0] ? 0 : 1);
+    }
+
+    /**
+     * Measures the allocation per event of one configuration of the panel and reports it.
+     *
+     * @param name            The name printed in the report.
+     * @param coalescing      Whether the updates are coalesced; every event is then followed by a frame.
+     * @param prediction      Whether the pointer prediction is enabled.
+     * @param adaptiveQuality Whether the target is hinted to paint fast while the mouse moves.
+     * @param budget          Maximal number of bytes an event may allocate.
+     * @param events          Number of measured events.
+     * @return Whether the budget is met.
+     */
+    private static boolean check(
+            String name, boolean coalescing, boolean prediction, boolean adaptiveQuality, long budget, int events
+    ) {
+        Component target = new ScaledImagePanel(createImage(), MouseFollowAndResizePanel.INITIAL_SCALE);
+        MouseFollowAndResizePanel panel = new MouseFollowAndResizePanel(
+                target, new Dimension(PANEL_SIZE / 2, PANEL_SIZE / 2)
+        );
+        panel.setSize(PANEL_SIZE, PANEL_SIZE);
+        JPanel host = new JPanel(null);
+        host.setSize(PANEL_SIZE, PANEL_SIZE);
+        host.add(panel);
+        // without a window the container has no peer, and validate() would skip the layout
+        host.addNotify();
+        panel.setCoalescingUpdates(coalescing);
+        panel.setPointerPrediction(prediction ? new PointerPredictor() : null);
+        panel.setAdaptiveRenderQuality(adaptiveQuality);
+
+        panel.dispatchEvent(new MouseEvent(
+                panel, MouseEvent.MOUSE_ENTERED, 0, 0, 0, PANEL_SIZE / 2, 0, PANEL_SIZE / 2, 0, false, MouseEvent.NOBUTTON
+        ));
+        // a zigzag sweep from the entrance side, so that both the position and the size keep changing;
+        // screen coordinates are passed explicitly, as the panel is not on a screen
+        MouseEvent[] moves = new MouseEvent[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            int x = i * PANEL_SIZE / EVENT_COUNT;
+            int y = PANEL_SIZE / 2 + (i % 2 == 0 ? 1 : -1) * (i % 16) * 10;
+            moves[i] = new MouseEvent(panel, MouseEvent.MOUSE_MOVED, 0, 0, x, y, x, y, 0, false, MouseEvent.NOBUTTON);
+        }
+
+        MouseMotionListener[] listeners = panel.getMouseMotionListeners();
+        run(host, panel, listeners, moves, coalescing, WARMUP_EVENTS);
+        // the counter itself may allocate, so its cost is measured on an empty run and subtracted
+        long overhead = measure(host, panel, listeners, moves, coalescing, 0);
+        long allocated = measure(host, panel, listeners, moves, coalescing, events) - overhead;
+        double perEvent = (double) allocated / events;
+        boolean met = perEvent <= budget;
+        System.out.printf("%-40s %10.2f B/event (budget %d) %s%n", name, perEvent, budget, met ? "ok" : "EXCEEDED");
+        panel.setCoalescingUpdates(false);
+        panel.setAdaptiveRenderQuality(false);
+        return met;
+    }
+
+    /**
+     * @return Number of bytes the EDT allocated while running the events.
+     */
+    private static long measure(
+            Container host, MouseFollowAndResizePanel panel, MouseMotionListener[] listeners, MouseEvent[] moves,
+            boolean coalescing, int events
+    ) {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        run(host, panel, listeners, moves, coalescing, events);
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * Passes the events to the listeners, applying a frame after each of them in the coalescing mode,
+     * and validates the container of the panel, which lays out the target invalidated by the event.
+     */
+    private static void run(
+            Container host, MouseFollowAndResizePanel panel, MouseMotionListener[] listeners, MouseEvent[] moves,
+            boolean coalescing, int events
+    ) {
+        long result = 0;
+        for (int i = 0; i < events; i++) {
+            for (MouseMotionListener listener : listeners) {
+                listener.mouseMoved(moves[i % EVENT_COUNT]);
+            }
+            if (coalescing) {
+                panel.applyPendingUpdate();
+            }
+            host.validate();
+            result += panel.getFramesApplied();
+        }
+        sink = result;
+    }
+
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(PANEL_SIZE / 2, PANEL_SIZE / 2, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.RED, PANEL_SIZE / 2f, PANEL_SIZE / 2f, Color.BLUE));
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,80 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Minimal benchmark harness: runs an operation for a warm-up period and then for a measured period,
+ * and reports the throughput and the number of bytes allocated per operation by the measuring thread.
+ * <p>
+ * Allocation is read from the per-thread allocation counter of HotSpot, so it counts exactly what the
+ * operation allocates on the calling thread, the same way a GC profiler attributes allocation.
+ * <p>
+ * The reproducible runs are the JMH benchmarks of the Gradle build ({@code bench/jmh});
+ * this harness is the fallback that needs nothing but the JDK.
+ */
+class BenchmarkRunner {
+    /**
+     * The operation being measured. Returns a value so that the JIT cannot remove the work.
+     */
+    interface Operation {
+        long run();
+    }
+
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    /**
+     * Number of operations between the checks of the clock.
+     */
+    private static final int BATCH = 1_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Accumulates the results of the operations, so that they are not dead code.
+     */
+    static volatile long sink;
+
+    /**
+     * Runs and reports the operation.
+     *
+     * @param name      The name printed in the report.
+     * @param operation The operation to measure.
+     */
+    static void run(String name, Operation operation) {
+        runFor(operation, WARMUP_NANOS);
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long operations = runFor(operation, MEASURE_NANOS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf(
+                "%-48s %14.0f ops/s %10.1f ns/op %10.1f B/op%n",
+                name,
+                operations * 1e9 / elapsed,
+                (double) elapsed / operations,
+                (double) allocated / operations
+        );
+    }
+
+    /**
+     * @param operation The operation to run.
+     * @param nanos     For how long to run it.
+     * @return Number of operations run.
+     */
+    private static long runFor(Operation operation, long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long operations = 0;
+        long result = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < BATCH; i++) {
+                result += operation.run();
+            }
+            operations += BATCH;
+        }
+        sink = result;
+        return operations;
+    }
+}
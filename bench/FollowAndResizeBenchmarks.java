@@ -0,0 +1,184 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmarks of the follow-and-resize hot path and of the preprocessing progress path.
+ * <p>
+ * Runs headless, painting into an offscreen image. With Gradle the same operations run under JMH
+ * ({@code gradle jmh}, see {@code bench/jmh}); without it they run with {@link BenchmarkRunner}:
+ * <pre>
+ * javac -d out src/*.java
+ * javac -cp out -d out bench/*.java
+ * java -Djava.awt.headless=true -cp out FollowAndResizeBenchmarks
+ * </pre>
+ */
+public class FollowAndResizeBenchmarks {
+    private static final int PANEL_SIZE = 1000;
+
+    /**
+     * Number of distinct precomputed mouse events the cycle benchmarks go through.
+     */
+    private static final int EVENT_COUNT = 256;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, BenchmarkRunner.Operation> operations = new LinkedHashMap<>();
+        SwingUtilities.invokeAndWait(() -> {
+            operations.putAll(createOperations());
+            for (Map.Entry<String, BenchmarkRunner.Operation> operation : operations.entrySet()) {
+                if (!operation.getKey().startsWith("progress")) {
+                    BenchmarkRunner.run(operation.getKey(), operation.getValue());
+                }
+            }
+        });
+        for (Map.Entry<String, BenchmarkRunner.Operation> operation : operations.entrySet()) {
+            if (operation.getKey().startsWith("progress")) {
+                BenchmarkRunner.run(operation.getKey(), operation.getValue());
+            }
+        }
+    }
+
+    /**
+     * Creates the benchmarked operation by its name, for the JMH benchmarks in {@code bench/jmh},
+     * which cannot refer to the classes of the default package. Must be called on the EDT.
+     *
+     * @param name The name of the operation, as printed by {@link #main(String[])}.
+     * @return The operation.
+     */
+    public static LongSupplier createOperation(String name) {
+        BenchmarkRunner.Operation operation = createOperations().get(name);
+        if (operation == null) {
+            throw new IllegalArgumentException("Unknown operation: " + name);
+        }
+        return operation::run;
+    }
+
+    /**
+     * Creates all the benchmarked operations. The operations that use Swing must be run on the EDT.
+     *
+     * @return The operations by name, in the order they are reported.
+     */
+    static Map<String, BenchmarkRunner.Operation> createOperations() {
+        Map<String, BenchmarkRunner.Operation> operations = new LinkedHashMap<>();
+        operations.put("SizeLookupTable lookup", createFormula());
+        createSides(operations);
+        operations.put("cycle: image target", createCycle(
+                new ScaledImagePanel(createImage(), MouseFollowAndResizePanel.INITIAL_SCALE), false));
+        operations.put("cycle: image target, adaptive quality", createCycle(
+                new ScaledImagePanel(createImage(), MouseFollowAndResizePanel.INITIAL_SCALE), true));
+        operations.put("cycle: preprocessing panel", createCycle(createPreprocessingPanel(), false));
+        createProgress(operations);
+        return operations;
+    }
+
+    /**
+     * The size lookup of the motion listener: the table is built as the panel builds it for its size,
+     * and both dimensions are read for every distance.
+     */
+    private static BenchmarkRunner.Operation createFormula() {
+        SizeLookupTable sizes = new SizeLookupTable();
+        sizes.rebuild(MouseFollowAndResizePanel.DEFAULT_CURVE, MouseFollowAndResizePanel.DEFAULT_CURVE,
+                new Dimension(PANEL_SIZE / 2, PANEL_SIZE / 2), PANEL_SIZE);
+        int[] distance = {0};
+        return () -> {
+            distance[0] = (distance[0] + 1) & 1023;
+            return sizes.getWidth(distance[0]) + sizes.getHeight(distance[0]);
+        };
+    }
+
+    private static void createSides(Map<String, BenchmarkRunner.Operation> operations) {
+        int[] coordinate = {0};
+        operations.put("getClosestSide", () -> {
+            coordinate[0] = (coordinate[0] + 7) % PANEL_SIZE;
+            return MouseFollowAndResizePanel.getClosestSide(
+                    coordinate[0], PANEL_SIZE - coordinate[0] / 2, PANEL_SIZE, PANEL_SIZE
+            ).ordinal();
+        });
+        operations.put("getDistanceToSide", () -> {
+            coordinate[0] = (coordinate[0] + 7) % PANEL_SIZE;
+            return MouseFollowAndResizePanel.getDistanceToSide(
+                    coordinate[0], coordinate[0] / 2, PANEL_SIZE, PANEL_SIZE, Side.LEFT
+            );
+        });
+    }
+
+    /**
+     * Creates one full cycle: a mouse move, the layout of the panel, and painting it offscreen.
+     *
+     * @param target          The hosted component.
+     * @param adaptiveQuality Whether the target is hinted to paint fast while the mouse moves.
+     * @return The operation.
+     */
+    private static BenchmarkRunner.Operation createCycle(Component target, boolean adaptiveQuality) {
+        MouseFollowAndResizePanel panel = createPanel(target);
+        panel.setAdaptiveRenderQuality(adaptiveQuality);
+        BufferedImage screen = new BufferedImage(PANEL_SIZE, PANEL_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = screen.createGraphics();
+
+        panel.dispatchEvent(new MouseEvent(
+                panel, MouseEvent.MOUSE_ENTERED, 0, 0, 0, PANEL_SIZE / 2, 0, PANEL_SIZE / 2, 0, false, MouseEvent.NOBUTTON
+        ));
+        // a diagonal sweep from the entrance side; events are created in advance to measure only the panel,
+        // and their screen coordinates are passed explicitly, as the panel is not on a screen
+        MouseEvent[] events = new MouseEvent[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            int position = i * PANEL_SIZE / EVENT_COUNT;
+            events[i] = new MouseEvent(
+                    panel, MouseEvent.MOUSE_MOVED, 0, 0, position, position, position, position, 0, false, MouseEvent.NOBUTTON
+            );
+        }
+
+        int[] next = {0};
+        return () -> {
+            panel.dispatchEvent(events[next[0]]);
+            next[0] = (next[0] + 1) % EVENT_COUNT;
+            panel.validate();
+            panel.paint(g2d);
+            return target.getWidth();
+        };
+    }
+
+    private static void createProgress(Map<String, BenchmarkRunner.Operation> operations) {
+        ProgressCounter counter = ProgressTracker.singleStage(Long.MAX_VALUE).getStage(0).newCounter();
+        operations.put("progress: ProgressCounter.add", () -> {
+            counter.add(1);
+            return 0;
+        });
+
+        ProgressTracker tracker = ProgressTracker.singleStage(1_000_000);
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors() * 8; i++) {
+            tracker.getStage(0).newCounter().add(i);
+        }
+        operations.put("progress: ProgressTracker.getFraction", () -> (long) (tracker.getFraction() * 100));
+    }
+
+    private static MouseFollowAndResizePanel createPanel(Component target) {
+        MouseFollowAndResizePanel panel = new MouseFollowAndResizePanel(target, new Dimension(PANEL_SIZE / 2, PANEL_SIZE / 2));
+        panel.setSize(PANEL_SIZE, PANEL_SIZE);
+        // without a window the panel has no peer, and validate() would skip the layout
+        panel.addNotify();
+        return panel;
+    }
+
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(PANEL_SIZE / 2, PANEL_SIZE / 2, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.RED, PANEL_SIZE / 2f, PANEL_SIZE / 2f, Color.BLUE));
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.dispose();
+        return image;
+    }
+
+    private static JPanel createPreprocessingPanel() {
+        return new PreprocessingPanel<>(new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return "done";
+            }
+        }, result -> result);
+    }
+}
@@ -0,0 +1,198 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a recorded {@link MouseTrace} into a {@link MouseFollowAndResizePanel} headlessly
+ * and reports the latency from each event to the end of painting the panel offscreen.
+ * <p>
+ * The trace is replayed twice, and each configuration is reported separately:
+ * <ul>
+ *     <li>direct: every event lays the component out and is painted at once;</li>
+ *     <li>shipped: the settings of {@link MouseFollowAndResizeFrame}, that is coalescing updates and adaptive
+ *     render quality (and the pointer prediction if {@value MouseFollowAndResizeFrame#PREDICTION_PROPERTY} is set).
+ *     The events are applied and painted at the next frame, so their latency includes waiting for it.</li>
+ * </ul>
+ * The events are handled on the EDT one by one, so the Swing timers of the panel run between them as in the app.
+ * <p>
+ * Usage: {@code java -Djava.awt.headless=true MouseTraceReplay <trace> [--paced] [--target image|panel] [--runs N]}.
+ * <ul>
+ *     <li>Without --paced the events are fed as fast as possible, and the latency is the time to handle one event.</li>
+ *     <li>With --paced the events are fed at their original times, and the latency is counted from the time
+ *     the event was due, so falling behind the input shows up as growing latency.
+ *     Frames of the shipped configuration are painted every {@code 1 / FRAMES_PER_SECOND} seconds;
+ *     without --paced every event is followed by its frame.</li>
+ * </ul>
+ */
+public class MouseTraceReplay {
+    /**
+     * The frame rate of the coalesced updates; the panel uses it too, as a headless panel has no display to ask.
+     */
+    private static final int FRAMES_PER_SECOND = 60;
+
+    private static final long FRAME_INTERVAL = 1_000_000_000L / FRAMES_PER_SECOND;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: MouseTraceReplay <trace> [--paced] [--target image|panel] [--runs N]");
+            return;
+        }
+        MouseTrace trace = MouseTrace.read(Paths.get(args[0]));
+        boolean paced = false;
+        String target = "image";
+        int runs = 5;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--paced" -> paced = true;
+                case "--target" -> target = args[++i];
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        for (boolean shipped : new boolean[]{false, true}) {
+            String targetName = target;
+            MouseFollowAndResizePanel[] panel = new MouseFollowAndResizePanel[1];
+            SwingUtilities.invokeAndWait(() -> panel[0] = createPanel(trace, targetName, shipped));
+            // the first run warms the JIT up and is not reported
+            replay(trace, panel[0], shipped, paced, new LatencyHistogram());
+            LatencyHistogram latencies = new LatencyHistogram();
+            for (int run = 0; run < runs; run++) {
+                replay(trace, panel[0], shipped, paced, latencies);
+            }
+            System.out.printf("%s (%d events, %s, %s target, %s): %s%n",
+                    args[0], trace.size(), paced ? "paced" : "as fast as possible", target,
+                    shipped ? "shipped" : "direct", latencies.toSummary());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Feeds the trace into the panel from the calling thread, handling every event on the EDT,
+     * and paints the panel offscreen after every event, or at the next frame if the updates are coalesced.
+     *
+     * @param trace      The trace.
+     * @param panel      The panel.
+     * @param coalescing Whether the updates of the panel are coalesced.
+     * @param paced      Whether to keep the original timing of the events.
+     * @param latencies  The histogram to record the latencies into.
+     * @throws InterruptedException      If the thread is interrupted while waiting for the EDT.
+     * @throws InvocationTargetException If handling or painting an event fails.
+     */
+    static void replay(
+            MouseTrace trace, MouseFollowAndResizePanel panel, boolean coalescing, boolean paced,
+            LatencyHistogram latencies
+    ) throws InterruptedException, InvocationTargetException {
+        BufferedImage screen = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = screen.createGraphics();
+        // the times the events that are not painted yet are counted from
+        long[] unpainted = new long[trace.size()];
+        int[] unpaintedCount = {0};
+        Runnable paint = () -> {
+            if (coalescing) {
+                panel.applyPendingUpdate();
+            }
+            panel.validate();
+            panel.paint(g2d);
+            long end = System.nanoTime();
+            for (int i = 0; i < unpaintedCount[0]; i++) {
+                latencies.record(end - unpainted[i]);
+            }
+            unpaintedCount[0] = 0;
+        };
+        // with coalescing, paced events wait for the frame; otherwise every event is painted right away
+        boolean framed = coalescing && paced;
+
+        long start = System.nanoTime();
+        long nextFrame = start;
+        for (int i = 0; i < trace.size(); i++) {
+            long due = start + trace.getTime(i);
+            if (paced) {
+                for (; nextFrame <= due; nextFrame += FRAME_INTERVAL) {
+                    if (unpaintedCount[0] == 0) continue;
+                    waitUntil(nextFrame);
+                    SwingUtilities.invokeAndWait(paint);
+                }
+                waitUntil(due);
+            }
+            int event = i;
+            SwingUtilities.invokeAndWait(() -> {
+                unpainted[unpaintedCount[0]++] = paced ? due : System.nanoTime();
+                panel.dispatchEvent(toMouseEvent(trace, event, panel));
+                if (!framed) {
+                    paint.run();
+                }
+            });
+        }
+        if (unpaintedCount[0] > 0) {
+            waitUntil(nextFrame);
+            SwingUtilities.invokeAndWait(paint);
+        }
+        g2d.dispose();
+    }
+
+    /**
+     * Parks the thread until the time.
+     *
+     * @param time The time in nanoseconds of {@link System#nanoTime()}.
+     */
+    private static void waitUntil(long time) {
+        while (System.nanoTime() < time) {
+            LockSupport.parkNanos(time - System.nanoTime());
+        }
+    }
+
+    private static MouseEvent toMouseEvent(MouseTrace trace, int event, Component source) {
+        int id = switch (trace.getType(event)) {
+            case MouseTrace.ENTERED -> MouseEvent.MOUSE_ENTERED;
+            case MouseTrace.EXITED -> MouseEvent.MOUSE_EXITED;
+            default -> MouseEvent.MOUSE_MOVED;
+        };
+        // screen coordinates are passed explicitly, as the panel is not on a screen
+        return new MouseEvent(source, id, System.currentTimeMillis(), 0,
+                trace.getX(event), trace.getY(event), trace.getX(event), trace.getY(event), 0, false, MouseEvent.NOBUTTON);
+    }
+
+    /**
+     * @param trace   The trace.
+     * @param target  The kind of the component: "image" or "panel".
+     * @param shipped Whether the panel is set up as {@link MouseFollowAndResizeFrame} does it.
+     * @return The panel of the size of the trace.
+     */
+    private static MouseFollowAndResizePanel createPanel(MouseTrace trace, String target, boolean shipped) {
+        Dimension size = new Dimension(trace.getWidth() / 2, trace.getHeight() / 2);
+        Component component;
+        if (target.equals("panel")) {
+            component = new PreprocessingPanel<>(new SwingWorker<String, Void>() {
+                @Override
+                protected String doInBackground() {
+                    return "done";
+                }
+            }, result -> result);
+        } else {
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.setPaint(new GradientPaint(0, 0, Color.RED, size.width, size.height, Color.BLUE));
+            g2d.fillRect(0, 0, size.width, size.height);
+            g2d.dispose();
+            component = new ScaledImagePanel(image, MouseFollowAndResizePanel.INITIAL_SCALE);
+        }
+        MouseFollowAndResizePanel panel = new MouseFollowAndResizePanel(component, size);
+        panel.setSize(trace.getWidth(), trace.getHeight());
+        if (shipped) {
+            panel.setFramesPerSecond(FRAMES_PER_SECOND);
+            panel.setCoalescingUpdates(true);
+            panel.setAdaptiveRenderQuality(true);
+            if (Boolean.getBoolean(MouseFollowAndResizeFrame.PREDICTION_PROPERTY)) {
+                panel.setPointerPrediction(new PointerPredictor());
+            }
+        }
+        // without a window the panel has no peer, and validate() would skip the layout
+        panel.addNotify();
+        return panel;
+    }
+}
@@ -0,0 +1,147 @@
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Evaluates {@link PointerPredictor} offline on a recorded {@link MouseTrace}: after every movement the position
+ * is predicted a lead time ahead and compared with the position the trace actually reached at that time.
+ * The error of following the last reported position (no prediction) is reported as the baseline.
+ * <p>
+ * Usage: {@code java PredictionEvaluation <trace> [--lead ms] [--window N] [--smoothing S] [--overshoot px] [--sweep]}.
+ * With --sweep a grid of parameters is evaluated and sorted by the 95th percentile of the error.
+ */
+public class PredictionEvaluation {
+    private static final int[] SWEEP_WINDOWS = {2, 3, 4, 6, 8};
+    private static final double[] SWEEP_SMOOTHINGS = {0, 0.3, 0.6};
+    private static final int[] SWEEP_OVERSHOOTS = {10, 20, 40, 80};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: PredictionEvaluation <trace> [--lead ms] [--window N] [--smoothing S]"
+                    + " [--overshoot px] [--sweep]");
+            return;
+        }
+        MouseTrace trace = MouseTrace.read(Paths.get(args[0]));
+        double leadMillis = 1000.0 / 60;
+        int window = PointerPredictor.DEFAULT_WINDOW;
+        double smoothing = PointerPredictor.DEFAULT_SMOOTHING;
+        int overshoot = PointerPredictor.DEFAULT_MAX_OVERSHOOT;
+        boolean sweep = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--lead" -> leadMillis = Double.parseDouble(args[++i]);
+                case "--window" -> window = Integer.parseInt(args[++i]);
+                case "--smoothing" -> smoothing = Double.parseDouble(args[++i]);
+                case "--overshoot" -> overshoot = Integer.parseInt(args[++i]);
+                case "--sweep" -> sweep = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long lead = (long) (leadMillis * 1_000_000);
+
+        System.out.printf("%s (%d events, lead %.1f ms)%n", args[0], trace.size(), leadMillis);
+        System.out.printf("%-40s %s%n", "no prediction", summarize(evaluate(trace, null, lead)));
+        if (!sweep) {
+            PointerPredictor predictor = new PointerPredictor(window, smoothing, overshoot);
+            System.out.printf("%-40s %s%n", describe(window, smoothing, overshoot),
+                    summarize(evaluate(trace, predictor, lead)));
+            return;
+        }
+
+        int count = SWEEP_WINDOWS.length * SWEEP_SMOOTHINGS.length * SWEEP_OVERSHOOTS.length;
+        String[] names = new String[count];
+        double[][] errors = new double[count][];
+        int next = 0;
+        for (int w : SWEEP_WINDOWS) {
+            for (double s : SWEEP_SMOOTHINGS) {
+                for (int o : SWEEP_OVERSHOOTS) {
+                    names[next] = describe(w, s, o);
+                    errors[next] = evaluate(trace, new PointerPredictor(w, s, o), lead);
+                    next++;
+                }
+            }
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(percentile(errors[a], 0.95), percentile(errors[b], 0.95)));
+        for (int i : order) {
+            System.out.printf("%-40s %s%n", names[i], summarize(errors[i]));
+        }
+    }
+
+    /**
+     * Replays the trace into the predictor and measures the prediction errors.
+     *
+     * @param trace     The trace.
+     * @param predictor The predictor, or null to measure following the last reported position.
+     * @param lead      How far ahead the position is predicted, in nanoseconds.
+     * @return The sorted errors in pixels, one per movement whose lead time is still within the same hover.
+     */
+    static double[] evaluate(MouseTrace trace, PointerPredictor predictor, long lead) {
+        double[] errors = new double[trace.size()];
+        int count = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            byte type = trace.getType(i);
+            if (predictor != null) {
+                if (type == MouseTrace.ENTERED || type == MouseTrace.EXITED) {
+                    predictor.reset();
+                }
+                if (type != MouseTrace.EXITED) {
+                    predictor.add(trace.getTime(i), trace.getX(i), trace.getY(i));
+                }
+            }
+            if (type != MouseTrace.MOVED) continue;
+
+            long target = trace.getTime(i) + lead;
+            int after = i + 1;
+            while (after < trace.size() && trace.getType(after) == MouseTrace.MOVED && trace.getTime(after) < target) {
+                after++;
+            }
+            // the actual position is unknown if the pointer left the panel before the lead time
+            if (after == trace.size() || trace.getType(after) != MouseTrace.MOVED) continue;
+
+            int before = after - 1;
+            double fraction = (double) (target - trace.getTime(before))
+                    / Math.max(1, trace.getTime(after) - trace.getTime(before));
+            double actualX = trace.getX(before) + (trace.getX(after) - trace.getX(before)) * fraction;
+            double actualY = trace.getY(before) + (trace.getY(after) - trace.getY(before)) * fraction;
+
+            int x = trace.getX(i), y = trace.getY(i);
+            if (predictor != null) {
+                predictor.predict(target);
+                x = predictor.getPredictedX();
+                y = predictor.getPredictedY();
+            }
+            errors[count++] = Math.hypot(x - actualX, y - actualY);
+        }
+        double[] result = Arrays.copyOf(errors, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static String describe(int window, double smoothing, int overshoot) {
+        return String.format("window %d, smoothing %.1f, overshoot %d", window, smoothing, overshoot);
+    }
+
+    private static String summarize(double[] sortedErrors) {
+        if (sortedErrors.length == 0) return "no samples";
+        double sum = 0;
+        for (double error : sortedErrors) sum += error;
+        return String.format("error px: mean %.2f, p50 %.2f, p95 %.2f, p99 %.2f, max %.2f",
+                sum / sortedErrors.length,
+                percentile(sortedErrors, 0.50),
+                percentile(sortedErrors, 0.95),
+                percentile(sortedErrors, 0.99),
+                sortedErrors[sortedErrors.length - 1]);
+    }
+
+    /**
+     * @param sortedErrors The sorted errors.
+     * @param fraction     The percentile as a fraction.
+     * @return The smallest error not smaller than the given fraction of the errors.
+     */
+    private static double percentile(double[] sortedErrors, double fraction) {
+        if (sortedErrors.length == 0) return 0;
+        int index = (int) Math.ceil(fraction * sortedErrors.length) - 1;
+        return sortedErrors[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the reference mouse traces in the traces directory, so that replay results can be compared between versions.
+ * <ul>
+ *     <li>diagonal-sweep: a fast sweep from the top left to the bottom right corner by a 1000 Hz mouse.</li>
+ *     <li>slow-hover: slow wandering around the middle of the panel by a 125 Hz mouse.</li>
+ * </ul>
+ */
+public class ReferenceTraces {
+    private static final int SIZE = 1000;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "traces");
+        Files.createDirectories(directory);
+        diagonalSweep().write(directory.resolve("diagonal-sweep.trace"));
+        slowHover().write(directory.resolve("slow-hover.trace"));
+    }
+
+    private static MouseTrace diagonalSweep() {
+        MouseTrace trace = new MouseTrace(SIZE, SIZE);
+        long millis = 1_000_000;
+        int steps = 250;
+        trace.add(MouseTrace.ENTERED, 0, 0, 0);
+        for (int i = 1; i < steps; i++) {
+            int position = i * SIZE / steps;
+            trace.add(MouseTrace.MOVED, i * millis, position, position);
+        }
+        trace.add(MouseTrace.EXITED, steps * millis, SIZE, SIZE);
+        return trace;
+    }
+
+    private static MouseTrace slowHover() {
+        MouseTrace trace = new MouseTrace(SIZE, SIZE);
+        long interval = 8_000_000;
+        int steps = 500;
+        trace.add(MouseTrace.ENTERED, 0, SIZE / 2, 0);
+        for (int i = 1; i < steps; i++) {
+            double t = (double) i / steps;
+            int x = SIZE / 2 + (int) (150 * Math.sin(t * 4 * Math.PI));
+            int y = (int) (t * SIZE / 2) + (int) (50 * Math.cos(t * 10 * Math.PI));
+            trace.add(MouseTrace.MOVED, i * interval, x, y);
+        }
+        trace.add(MouseTrace.EXITED, steps * interval, SIZE / 2, SIZE / 2);
+        return trace;
+    }
+}
@@ -0,0 +1,84 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.Random;
+
+/**
+ * Measures the cost of routing a mouse position to a tile of {@link MouseFollowAndResizeGrid}
+ * for different numbers of tiles. The cost should stay flat as the number of tiles grows.
+ * <p>
+ * The lookup of {@link TileIndex} is measured on its own with uniformly random points.
+ * The dispatch of the grid is measured on a random walk of small steps, like a real pointer,
+ * so that the tile changes only now and then: a change also activates the new tile, which costs far more.
+ * <p>
+ * Runs headless: {@code java -Djava.awt.headless=true TileDispatchBenchmark}.
+ */
+public class TileDispatchBenchmark {
+    private static final int TILE_SIZE = 100;
+
+    /**
+     * Largest step of the pointer walk in each direction, in pixels.
+     */
+    private static final int MAX_STEP = 8;
+
+    /**
+     * Number of precomputed points; a power of two.
+     */
+    private static final int POINT_COUNT = 1 << 16;
+
+    public static void main(String[] args) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            for (int tiles : new int[]{10, 100, 1000}) {
+                measure(tiles);
+            }
+        });
+    }
+
+    /**
+     * Measures the lookup of one point in the index and dispatching one pointer position to a grid.
+     *
+     * @param tileCount Number of tiles in the grid.
+     */
+    private static void measure(int tileCount) {
+        int columns = (int) Math.ceil(Math.sqrt(tileCount));
+        int rows = (tileCount + columns - 1) / columns;
+        int width = columns * TILE_SIZE;
+        int height = rows * TILE_SIZE;
+        MouseFollowAndResizeGrid grid = new MouseFollowAndResizeGrid();
+        grid.setSize(width, height);
+        TileIndex index = new TileIndex();
+        for (int i = 0; i < tileCount; i++) {
+            Rectangle bounds = new Rectangle(
+                    (i % columns) * TILE_SIZE, (i / columns) * TILE_SIZE, TILE_SIZE, TILE_SIZE
+            );
+            grid.addTile(new JPanel(), new Dimension(TILE_SIZE / 2, TILE_SIZE / 2), bounds);
+            index.add(bounds);
+        }
+
+        // points are precomputed so that the measured loops only look up and dispatch
+        Random random = new Random(42);
+        int[] randomXs = new int[POINT_COUNT];
+        int[] randomYs = new int[POINT_COUNT];
+        int[] walkXs = new int[POINT_COUNT];
+        int[] walkYs = new int[POINT_COUNT];
+        int x = width / 2, y = height / 2;
+        for (int i = 0; i < POINT_COUNT; i++) {
+            randomXs[i] = random.nextInt(width);
+            randomYs[i] = random.nextInt(height);
+            x = Math.floorMod(x + random.nextInt(2 * MAX_STEP + 1) - MAX_STEP, width);
+            y = Math.floorMod(y + random.nextInt(2 * MAX_STEP + 1) - MAX_STEP, height);
+            walkXs[i] = x;
+            walkYs[i] = y;
+        }
+
+        int[] next = {0};
+        BenchmarkRunner.run("index lookup: " + tileCount + " tiles", () -> {
+            int i = next[0]++ & (POINT_COUNT - 1);
+            return index.find(randomXs[i], randomYs[i]);
+        });
+        BenchmarkRunner.run("grid dispatch, pointer walk: " + tileCount + " tiles", () -> {
+            int i = next[0]++ & (POINT_COUNT - 1);
+            grid.dispatch(walkXs[i], walkYs[i]);
+            return i;
+        });
+    }
+}
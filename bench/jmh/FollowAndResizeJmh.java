@@ -0,0 +1,89 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * JMH version of {@code FollowAndResizeBenchmarks}: runs the same operations, one per value of {@link #operation}.
+ * <p>
+ * JMH does not accept benchmarks in the default package, and classes in a package cannot refer to the library,
+ * so the operation is created through reflection and called as a {@link LongSupplier}.
+ * The operations use Swing, so they are run on the EDT in batches of {@link #BATCH},
+ * which makes the cost of the hand-off negligible.
+ * <pre>
+ * gradle jmh
+ * gradle jmh -Pjmh.args="-p operation=getClosestSide -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-DfollowMetrics=false"})
+public class FollowAndResizeJmh {
+    /**
+     * Number of operations run per hand-off to the EDT.
+     */
+    static final int BATCH = 1_000;
+
+    @Param({
+            "SizeLookupTable lookup",
+            "getClosestSide",
+            "getDistanceToSide",
+            "cycle: image target",
+            "cycle: image target, adaptive quality",
+            "cycle: preprocessing panel",
+            "progress: ProgressCounter.add",
+            "progress: ProgressTracker.getFraction"
+    })
+    public String operation;
+
+    private LongSupplier supplier;
+    private Runnable batch;
+
+    /**
+     * Result of the last batch, returned so that the JIT cannot remove the work.
+     */
+    private long result;
+
+    @Setup
+    public void setUp() throws Exception {
+        Class<?> benchmarks = Class.forName("FollowAndResizeBenchmarks");
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                supplier = (LongSupplier) benchmarks.getMethod("createOperation", String.class).invoke(null, operation);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can't create " + operation, e);
+            }
+        });
+        batch = () -> {
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += supplier.getAsLong();
+            }
+            result = sum;
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long run() throws Exception {
+        SwingUtilities.invokeAndWait(batch);
+        return result;
+    }
+}
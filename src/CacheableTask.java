@@ -0,0 +1,29 @@
+import java.io.IOException;
+
+/**
+ * Task whose result can be stored in the {@link ResultCache}, so it does not have to be recomputed on the next start.
+ * {@link PreprocessingManager} looks the result up before running the task and stores it after the task is done.
+ *
+ * @param <T> The type of the result.
+ */
+public interface CacheableTask<T> {
+    /**
+     * The key must be stable between runs and must change whenever the result would change.
+     *
+     * @return The key of the result in the cache, or null if the result should not be cached.
+     */
+    String getCacheKey();
+
+    /**
+     * @param result The result of the task.
+     * @return The serialized result.
+     */
+    byte[] serializeResult(T result);
+
+    /**
+     * @param bytes The serialized result.
+     * @return The result of the task.
+     * @throws IOException If the bytes do not represent a valid result.
+     */
+    T deserializeResult(byte[] bytes) throws IOException;
+}
@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+
+/**
+ * Directory of task checkpoints, one file per key, named by the SHA-256 of the key:
+ * <pre>
+ * magic (int), version (int), key length (int), state length (int), CRC32 of key and state (int), key (UTF-8), state
+ * </pre>
+ * A checkpoint is written to a temporary file which then atomically replaces the previous one,
+ * so a crash during a write never destroys the last good checkpoint. A file that does not pass the checks is ignored.
+ */
+public class CheckpointStore {
+    private static final int MAGIC = 0x434B5054;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * The store used by {@link PreprocessingManager}; created lazily.
+     */
+    private static CheckpointStore defaultStore;
+
+    /**
+     * The directory of the checkpoint files.
+     */
+    private final Path directory;
+
+    /**
+     * @param directory The directory of the checkpoint files; created on the first write.
+     */
+    CheckpointStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The store in the user's home directory used by default.
+     */
+    public static synchronized CheckpointStore getDefault() {
+        if (defaultStore == null) {
+            defaultStore = new CheckpointStore(
+                    Paths.get(System.getProperty("user.home"), ".preprocessing-cache", "checkpoints")
+            );
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Replaces the store used by default.
+     *
+     * @param store The new default store.
+     */
+    public static synchronized void setDefault(CheckpointStore store) {
+        defaultStore = store;
+    }
+
+    /**
+     * @param key The key of the checkpoint.
+     * @return The saved state, or null if there is no valid checkpoint for the key.
+     * @throws IOException If the checkpoint file cannot be read.
+     */
+    public byte[] load(String key) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(getFile(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+        int keyLength = buffer.getInt();
+        int stateLength = buffer.getInt();
+        int crc = buffer.getInt();
+        if (keyLength < 0 || stateLength < 0 || (long) HEADER_SIZE + keyLength + stateLength != bytes.length) {
+            return null;
+        }
+        byte[] keyBytes = new byte[keyLength];
+        byte[] state = new byte[stateLength];
+        buffer.get(keyBytes).get(state);
+        if (crc != getCrc(keyBytes, state) || !key.equals(new String(keyBytes, StandardCharsets.UTF_8))) {
+            return null;
+        }
+        return state;
+    }
+
+    /**
+     * Saves the state, atomically replacing the previous checkpoint for the key.
+     *
+     * @param key   The key of the checkpoint.
+     * @param state The state.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void save(String key, byte[] state) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + state.length);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(keyBytes.length)
+                .putInt(state.length)
+                .putInt(getCrc(keyBytes, state))
+                .put(keyBytes)
+                .put(state);
+
+        Files.createDirectories(directory);
+        Path file = getFile(key);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+            output.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the checkpoint, for example after the task is done.
+     *
+     * @param key The key of the checkpoint.
+     * @throws IOException If the checkpoint file cannot be removed.
+     */
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(getFile(key));
+    }
+
+    /**
+     * @param key The key of the checkpoint.
+     * @return The file of the checkpoint, named by the SHA-256 of the key, so that different keys never share a file;
+     * the key itself is stored inside and checked on load.
+     */
+    private Path getFile(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        return directory.resolve(HexFormat.of().formatHex(digest) + ".checkpoint");
+    }
+
+    private static int getCrc(byte[] keyBytes, byte[] state) {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(state);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,30 @@
+import java.io.IOException;
+
+/**
+ * Task whose progress survives closing the application: {@link PreprocessingManager} periodically saves its state
+ * into the {@link CheckpointStore} while it runs, and restores the latest state before running it again.
+ */
+public interface CheckpointableTask {
+    /**
+     * The key must be stable between runs and must change whenever the state would not fit the task anymore.
+     *
+     * @return The key of the checkpoint in the store, or null if the task should not be checkpointed.
+     */
+    String getCheckpointKey();
+
+    /**
+     * Called on a background thread while the task runs, so it must be safe to call concurrently with the task.
+     * The state should be compact, as it is written out every time.
+     *
+     * @return The serialized state of the task.
+     */
+    byte[] saveCheckpoint();
+
+    /**
+     * Called on a background thread before the task runs.
+     *
+     * @param state The state saved by {@link #saveCheckpoint()}.
+     * @throws IOException If the bytes do not represent a valid state; the task then starts from scratch.
+     */
+    void restoreCheckpoint(byte[] state) throws IOException;
+}
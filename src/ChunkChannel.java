@@ -0,0 +1,41 @@
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded channel of partial results from a background task to the EDT.
+ * The producer blocks when the channel is full, so a fast producer cannot flood the EDT
+ * or build up unbounded memory; the EDT drains the channel in batches at its own pace.
+ *
+ * @param <C> The type of the chunks.
+ */
+class ChunkChannel<C> {
+    private final ArrayBlockingQueue<C> queue;
+
+    /**
+     * @param capacity Maximal number of chunks waiting to be delivered.
+     */
+    ChunkChannel(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Adds a chunk, waiting while the channel is full.
+     *
+     * @param chunk The chunk.
+     * @throws InterruptedException If the producer is interrupted (for example, cancelled) while waiting.
+     */
+    void put(C chunk) throws InterruptedException {
+        queue.put(chunk);
+    }
+
+    /**
+     * Moves the waiting chunks into the collection, at most the given number of them.
+     *
+     * @param batch    The collection to add the chunks to.
+     * @param maxCount Maximal number of chunks to move.
+     * @return Number of moved chunks.
+     */
+    int drainTo(Collection<? super C> batch, int maxCount) {
+        return queue.drainTo(batch, maxCount);
+    }
+}
@@ -0,0 +1,273 @@
+import javax.swing.*;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of the follow-and-resize panels and of the preprocessing tasks.
+ * <p>
+ * Everything is recorded into lock-free counters and {@link LatencyHistogram}s, so recording does not allocate
+ * and does not block the EDT. The metrics are exposed as the MBean {@value #OBJECT_NAME} and,
+ * if {@value #LOG_INTERVAL_PROPERTY} is set to a number of seconds, periodically printed.
+ * <p>
+ * The metrics are on by default and turned off with {@code -D}{@value #ENABLED_PROPERTY}{@code =false}.
+ * The callers check {@link #ENABLED} before measuring; as it is a static final constant,
+ * the JIT removes the measuring code entirely when it is false.
+ */
+public class FollowMetrics implements FollowMetricsMBean {
+    static final String ENABLED_PROPERTY = "followMetrics";
+    static final String LOG_INTERVAL_PROPERTY = "followMetrics.logInterval";
+    static final String OBJECT_NAME = "gestures:type=FollowMetrics";
+
+    /**
+     * Whether the metrics are recorded.
+     */
+    static final boolean ENABLED = !"false".equals(System.getProperty(ENABLED_PROPERTY));
+
+    /**
+     * How often the events per second and the EDT lag are sampled, in milliseconds.
+     */
+    private static final long SAMPLE_INTERVAL = 1000;
+
+    private static FollowMetrics instance;
+
+    private final LongAdder eventsReceived = new LongAdder();
+    private final LongAdder framesApplied = new LongAdder();
+    private final LatencyHistogram handlerTime = new LatencyHistogram();
+    private final LatencyHistogram layoutTime = new LatencyHistogram();
+    private final LatencyHistogram paintTime = new LatencyHistogram();
+    private final LatencyHistogram followLatency = new LatencyHistogram();
+    private final LatencyHistogram edtLag = new LatencyHistogram();
+
+    private final LongAdder tasksCompleted = new LongAdder();
+    private final LongAdder taskUnits = new LongAdder();
+    private final LongAdder taskNanos = new LongAdder();
+    private final LatencyHistogram taskDuration = new LatencyHistogram();
+
+    /**
+     * Events received before the last sample, and the rate over the last sampling interval.
+     */
+    private long sampledEvents = 0;
+    private volatile double eventsPerSecond = 0;
+
+    private FollowMetrics() {
+    }
+
+    /**
+     * Returns the metrics, creating them, registering the MBean and starting the sampling on the first call.
+     * Must only be called when {@link #ENABLED} is true.
+     *
+     * @return The metrics.
+     */
+    static synchronized FollowMetrics get() {
+        if (instance == null) {
+            instance = new FollowMetrics();
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the MBean and starts the sampling and the periodic log dump.
+     */
+    private void start() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.out.println("Can't register the metrics MBean: " + e.getMessage());
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "follow-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+
+        long logInterval = Long.getLong(LOG_INTERVAL_PROPERTY, 0);
+        if (logInterval > 0) {
+            scheduler.scheduleAtFixedRate(
+                    () -> System.out.println(toSummary()), logInterval, logInterval, TimeUnit.SECONDS
+            );
+        }
+    }
+
+    /**
+     * Computes the event rate and measures how long a runnable waits in the EDT queue.
+     * The wait grows with the number of events queued before it, so it shows how backed up the EDT is.
+     * The EDT is probed only while events arrive, so that an idle application can still shut the EDT down.
+     */
+    private void sample() {
+        long events = eventsReceived.sum();
+        eventsPerSecond = (events - sampledEvents) * 1000.0 / SAMPLE_INTERVAL;
+        boolean active = events != sampledEvents;
+        sampledEvents = events;
+        if (!active) return;
+
+        long posted = System.nanoTime();
+        SwingUtilities.invokeLater(() -> edtLag.record(System.nanoTime() - posted));
+    }
+
+    void recordEvent(long handlerNanos) {
+        eventsReceived.increment();
+        handlerTime.record(handlerNanos);
+    }
+
+    void recordFrame() {
+        framesApplied.increment();
+    }
+
+    void recordLayout(long nanos) {
+        layoutTime.record(nanos);
+    }
+
+    void recordPaint(long nanos) {
+        paintTime.record(nanos);
+    }
+
+    void recordFollowLatency(long nanos) {
+        followLatency.record(nanos);
+    }
+
+    /**
+     * Records a finished preprocessing task.
+     *
+     * @param nanos The duration of the task.
+     * @param units Number of units the task processed, 0 if unknown.
+     */
+    void recordTask(long nanos, long units) {
+        tasksCompleted.increment();
+        taskDuration.record(nanos);
+        taskNanos.add(nanos);
+        taskUnits.add(units);
+    }
+
+    /**
+     * @return All the metrics on a single line.
+     */
+    String toSummary() {
+        return String.format(
+                "follow metrics: events=%d frames=%d events/s=%.0f handler[%s] layout[%s] paint[%s] "
+                        + "latency[%s] edtLag[%s] tasks[%s]",
+                getEventsReceived(), getFramesApplied(), getEventsPerSecond(),
+                handlerTime.toSummary(), layoutTime.toSummary(), paintTime.toSummary(),
+                followLatency.toSummary(), edtLag.toSummary(), taskDuration.toSummary()
+        );
+    }
+
+    @Override
+    public long getEventsReceived() {
+        return eventsReceived.sum();
+    }
+
+    @Override
+    public long getFramesApplied() {
+        return framesApplied.sum();
+    }
+
+    @Override
+    public long getCoalescedEvents() {
+        return Math.max(0, getEventsReceived() - getFramesApplied());
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    @Override
+    public double getHandlerTimeP50() {
+        return handlerTime.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getHandlerTimeP99() {
+        return handlerTime.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getLayoutTimeP50() {
+        return layoutTime.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getLayoutTimeP99() {
+        return layoutTime.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getPaintTimeP50() {
+        return paintTime.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getPaintTimeP99() {
+        return paintTime.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getFollowLatencyP50() {
+        return followLatency.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getFollowLatencyP99() {
+        return followLatency.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getFollowLatencyMax() {
+        return followLatency.getMax() / 1e3;
+    }
+
+    @Override
+    public double getEdtLagP99() {
+        return edtLag.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getEdtLagMax() {
+        return edtLag.getMax() / 1e3;
+    }
+
+    @Override
+    public long getTasksCompleted() {
+        return tasksCompleted.sum();
+    }
+
+    @Override
+    public double getTaskDurationP50() {
+        return taskDuration.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getTaskDurationMax() {
+        return taskDuration.getMax() / 1e3;
+    }
+
+    @Override
+    public double getTaskUnitsPerSecond() {
+        long nanos = taskNanos.sum();
+        return nanos == 0 ? 0 : taskUnits.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public void reset() {
+        eventsReceived.reset();
+        framesApplied.reset();
+        sampledEvents = 0;
+        handlerTime.reset();
+        layoutTime.reset();
+        paintTime.reset();
+        followLatency.reset();
+        edtLag.reset();
+        tasksCompleted.reset();
+        taskUnits.reset();
+        taskNanos.reset();
+        taskDuration.reset();
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * JMX view of {@link FollowMetrics}. Times are in microseconds.
+ */
+public interface FollowMetricsMBean {
+    long getEventsReceived();
+
+    long getFramesApplied();
+
+    long getCoalescedEvents();
+
+    double getEventsPerSecond();
+
+    double getHandlerTimeP50();
+
+    double getHandlerTimeP99();
+
+    double getLayoutTimeP50();
+
+    double getLayoutTimeP99();
+
+    double getPaintTimeP50();
+
+    double getPaintTimeP99();
+
+    double getFollowLatencyP50();
+
+    double getFollowLatencyP99();
+
+    double getFollowLatencyMax();
+
+    double getEdtLagP99();
+
+    double getEdtLagMax();
+
+    long getTasksCompleted();
+
+    double getTaskDurationP50();
+
+    double getTaskDurationMax();
+
+    double getTaskUnitsPerSecond();
+
+    /**
+     * Clears all the metrics.
+     */
+    void reset();
+}
@@ -1,59 +1,169 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
+    /**
+     * Computes 2^POWER modulo MOD by doubling, split over all the cores.
+     * The result is cached, so it is computed only on the first start.
+     */
+    private static class PowerTask implements SplittableTask<Long>, CacheableTask<Long> {
+        private final int POWER = 1_000_000_000;
+        private final int MOD = 1_000_000_007;
+
+        @Override
+        public long size() {
+            return POWER;
+        }
+
+        @Override
+        public Long compute(long from, long to, ProgressCounter progress) {
+            long result = 1;
+            for (long i = from; i < to; i++) {
+                result = (result * 2) % MOD;
+                progress.add(1);
+            }
+            return result;
+        }
+
+        @Override
+        public Long combine(Long left, Long right) {
+            return (left * right) % MOD;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return "power:2:" + POWER + ":" + MOD;
+        }
+
+        @Override
+        public byte[] serializeResult(Long result) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(result).array();
+        }
+
+        @Override
+        public Long deserializeResult(byte[] bytes) throws IOException {
+            if (bytes.length != Long.BYTES) {
+                throw new IOException("Expected " + Long.BYTES + " bytes, got " + bytes.length);
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        }
+    }
+
     public static void panelExample() {
-        JPanel panel = new PreprocessingPanel(new SwingWorker<>() {
-            private final int POWER = 1_000_000_000;
-            private final int MOD = 1_000_000_007;
-
-            @Override
-            protected Void doInBackground() {
-                System.out.println("started background");
-                int result = 1;
-                setProgress(0);
-                for (int progress = 0; progress <= POWER; progress++) {
-                    result = (result * 2) % MOD; // Never mind, java overflow is goofy like that
-                    int percent = POWER / 100;
-                    if ((progress % percent) == 0) {
-                        setProgress(progress / percent);
-                    }
+        // the computation starts when the mouse gets close to the panel and pauses when it stays away
+        JPanel panel = new PreprocessingPanel<>(
+                new PowerTask(),
+                ForkJoinPool.commonPool(),
+                result -> "2^10^9 = " + result,
+                PreprocessingStartPolicy.onProximity(100).withPauseAfter(2000)
+        );
+        Dimension size = new Dimension(
+                MouseFollowAndResizeFrame.SCREEN_WIDTH / 2,
+                MouseFollowAndResizeFrame.SCREEN_HEIGHT / 2
+        );
+        // the panel is heavy to lay out, so it is drawn from snapshots while it is being resized
+        new MouseFollowAndResizeFrame(
+                new SnapshotPanel(panel, size, MouseFollowAndResizePanel.INITIAL_SCALE),
+                size
+        );
+    }
+
+    /**
+     * Finds the primes below LIMIT by trial division and streams every one of them to the panel as it is found.
+     */
+    private static class PrimesTask extends StreamingWorker<Integer, Integer> {
+        private final int LIMIT = 5_000_000;
+
+        @Override
+        protected Integer doInBackground() throws InterruptedException {
+            int count = 0;
+            for (int n = 2; n < LIMIT; n++) {
+                if (isPrime(n)) {
+                    count++;
+                    emit(n);
+                }
+                if (n % 10_000 == 0) {
+                    setProgress((int) ((long) n * 100 / LIMIT));
                 }
-                System.out.println(result);
-                return null;
             }
+            return count;
+        }
+
+        private static boolean isPrime(int n) {
+            for (int d = 2; (long) d * d <= n; d++) {
+                if (n % d == 0) return false;
+            }
+            return true;
+        }
+    }
+
+    public static void streamingExample() {
+        JPanel panel = new PreprocessingPanel<>(new PrimesTask(), count -> count + " primes");
+        Dimension size = new Dimension(
+                MouseFollowAndResizeFrame.SCREEN_WIDTH / 2,
+                MouseFollowAndResizeFrame.SCREEN_HEIGHT / 2
+        );
+        new MouseFollowAndResizeFrame(
+                new SnapshotPanel(panel, size, MouseFollowAndResizePanel.INITIAL_SCALE),
+                size
+        );
+    }
+
+    /**
+     * Generates random numbers, then sorts them and sums them up concurrently, and reports the median and the mean.
+     *
+     * @return The pipeline.
+     */
+    private static StagePipeline<String> createStatisticsPipeline() {
+        int count = 20_000_000;
+        StagePipeline<String> pipeline = new StagePipeline<>();
+        StagePipeline.Stage<int[]> generate = pipeline.addStage("generate", 1, count, context -> {
+            Random random = new Random(42);
+            int[] numbers = new int[count];
+            for (int i = 0; i < count; i++) {
+                numbers[i] = random.nextInt(1_000_000);
+                if (i % 100_000 == 0) context.getProgress().add(100_000);
+            }
+            return numbers;
         });
+        StagePipeline.Stage<int[]> sort = pipeline.addStage("sort", 4, 1, context -> {
+            int[] numbers = context.get(generate).clone();
+            Arrays.sort(numbers);
+            return numbers;
+        }, generate);
+        StagePipeline.Stage<Long> sum = pipeline.addStage("sum", 1, 1,
+                context -> Arrays.stream(context.get(generate)).asLongStream().sum(), generate);
+        pipeline.addStage("report", 0, 1, context -> {
+            int[] sorted = context.get(sort);
+            return "median " + sorted[count / 2] + ", mean " + context.get(sum) / count;
+        }, sort, sum);
+        return pipeline;
+    }
+
+    public static void pipelineExample() {
+        StagePipeline<String> pipeline = createStatisticsPipeline();
+        // the label shows the timings of the stages under the result, one stage per line
+        JPanel panel = new PreprocessingPanel<>(
+                pipeline,
+                result -> "<html>" + result + "<pre>" + pipeline.getTimingSummary() + "</pre></html>"
+        );
         new MouseFollowAndResizeFrame(
                 panel,
-                new Dimension(
-                        MouseFollowAndResizeFrame.SCREEN_WIDTH / 2,
-                        MouseFollowAndResizeFrame.SCREEN_HEIGHT / 2
-                )
+                new Dimension(MouseFollowAndResizeFrame.SCREEN_WIDTH / 2, MouseFollowAndResizeFrame.SCREEN_HEIGHT / 2)
         );
     }
 
     public static void memeExample() {
         try {
-            BufferedImage meme = ImageIO.read(new File("resources/meme.png"));
-            JPanel panel = new JPanel() {
-                @Override
-                protected void paintComponent(Graphics g) {
-                    super.paintComponent(g);
-                    Graphics2D g2d = (Graphics2D) g;
-                    g2d.drawImage(meme, 0, 0, getWidth(), getHeight(), this);
-                }
-            };
-            new MouseFollowAndResizeFrame(
-                    panel,
-                    new Dimension(
-                            meme.getWidth(),
-                            meme.getHeight()
-                    )
-            );
+            // only the header is read here; the image is decoded in the background at the resolution it is shown at
+            TiledImagePanel panel = new TiledImagePanel(Paths.get("resources/meme.png"));
+            new MouseFollowAndResizeFrame(panel, panel.getImageSize());
         } catch (IOException e) {
             System.out.println("Can't open the meme :(");
         }
@@ -61,8 +171,29 @@ public class Main {
     }
 
 
+    public static void gridExample() {
+        int tilesPerSide = 20;
+        int tileSize = MouseFollowAndResizeFrame.SCREEN_WIDTH / tilesPerSide;
+        MouseFollowAndResizeGrid grid = new MouseFollowAndResizeGrid();
+        for (int row = 0; row < tilesPerSide; row++) {
+            for (int column = 0; column < tilesPerSide; column++) {
+                JPanel tile = new JPanel();
+                tile.setBackground(Color.getHSBColor((float) (row * tilesPerSide + column) / (tilesPerSide * tilesPerSide), 0.6f, 0.9f));
+                grid.addTile(
+                        tile,
+                        new Dimension(tileSize, tileSize),
+                        new Rectangle(column * tileSize, row * tileSize, tileSize, tileSize)
+                );
+            }
+        }
+        new MouseFollowAndResizeFrame(grid);
+    }
+
     public static void main(String[] args) {
         panelExample();
 //        memeExample();
+//        gridExample();
+//        streamingExample();
+//        pipelineExample();
     }
 }
\ No newline at end of file
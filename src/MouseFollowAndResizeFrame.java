@@ -1,5 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * Frame that handles the MouseResize panel.
@@ -8,15 +12,76 @@ public class MouseFollowAndResizeFrame extends JFrame {
     static final int SCREEN_WIDTH = 1000;
     static final int SCREEN_HEIGHT = 1000;
 
+    /**
+     * System property with the path of the file to record the mouse trace into; nothing is recorded if it is not set.
+     */
+    static final String TRACE_PROPERTY = "mouseTrace";
+
+    /**
+     * System property that enables the pointer prediction with the default parameters when set to true.
+     */
+    static final String PREDICTION_PROPERTY = "pointerPrediction";
+
     MouseFollowAndResizeFrame(Component targetComponent, Dimension targetComponentSize) {
         MouseFollowAndResizePanel panel = new MouseFollowAndResizePanel(
                 targetComponent, targetComponentSize
         );
+        panel.setCoalescingUpdates(true);
+        panel.setAdaptiveRenderQuality(true);
+        if (Boolean.getBoolean(PREDICTION_PROPERTY)) {
+            panel.setPointerPrediction(new PointerPredictor());
+        }
+        setUp(panel);
+        setUpRecording(panel);
+    }
+
+    /**
+     * Starts recording the mouse trace of the panel if {@link #TRACE_PROPERTY} is set,
+     * and stops it when the frame is closed.
+     *
+     * @param panel The panel to record.
+     */
+    private void setUpRecording(MouseFollowAndResizePanel panel) {
+        String traceFile = System.getProperty(TRACE_PROPERTY);
+        if (traceFile == null) return;
+        try {
+            panel.startRecording(Paths.get(traceFile));
+        } catch (IOException e) {
+            System.out.println("Can't record the mouse trace: " + e.getMessage());
+            return;
+        }
+        this.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    panel.stopRecording();
+                } catch (IOException exception) {
+                    System.out.println("Can't save the mouse trace: " + exception.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the frame that shows a grid of follow-and-resize tiles.
+     *
+     * @param grid The grid to show.
+     */
+    MouseFollowAndResizeFrame(MouseFollowAndResizeGrid grid) {
+        setUp(grid);
+    }
+
+    /**
+     * Configures the frame and shows it.
+     *
+     * @param content The content of the frame.
+     */
+    private void setUp(Component content) {
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         this.setSize(SCREEN_WIDTH, SCREEN_HEIGHT);
         this.setResizable(false);
         this.setLocationRelativeTo(null);
-        this.add(panel);
+        this.add(content);
         this.setVisible(true);
     }
 }
@@ -0,0 +1,225 @@
+import javax.swing.*;
+import javax.swing.event.MouseInputAdapter;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Container of many follow-and-resize tiles that behaves like a grid of {@link MouseFollowAndResizePanel}s.
+ * <p>
+ * Tiles are not components: the container registers a single mouse listener and finds the tile under the mouse
+ * with a {@link TileIndex}. Only the active tile's component is in the component tree, inside a viewport that
+ * clips it to the tile, so Swing dispatch, entrance side detection and the resize formula do not depend on
+ * the number of tiles.
+ * <p>
+ * The tiles share the response curves, set with {@link #setScalingCurves(ScalingCurve, ScalingCurve)};
+ * a single {@link SizeLookupTable} is rebuilt for the active tile when it is activated.
+ */
+public class MouseFollowAndResizeGrid extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Color of the tile outlines.
+     */
+    private static final Color TILE_BORDER_COLOR = Color.LIGHT_GRAY;
+
+    /**
+     * Spatial index of the tile bounds.
+     */
+    private final TileIndex index = new TileIndex();
+
+    /**
+     * Components of the tiles, by tile index.
+     */
+    private final List<Component> components = new ArrayList<>();
+
+    /**
+     * Original sizes of the tile components, by tile index.
+     */
+    private final List<Dimension> originalSizes = new ArrayList<>();
+
+    /**
+     * Panel that clips the active component to its tile.
+     */
+    private final JPanel viewport = new JPanel(null);
+
+    /**
+     * The tile under the mouse, or -1 if there is none.
+     */
+    private int activeTile = -1;
+
+    /**
+     * The side of the active tile the mouse entered from.
+     */
+    private Side entranceSide;
+
+    /**
+     * The clip of the painted graphics; reused, so that painting does not allocate it.
+     */
+    private final Rectangle clip = new Rectangle();
+
+    /**
+     * Curves of the component width and height of every tile.
+     */
+    private ScalingCurve horizontalCurve = MouseFollowAndResizePanel.DEFAULT_CURVE;
+    private ScalingCurve verticalCurve = MouseFollowAndResizePanel.DEFAULT_CURVE;
+
+    /**
+     * Component sizes by distance for the active tile.
+     */
+    private final SizeLookupTable sizes = new SizeLookupTable();
+
+    /**
+     * Constructs an empty grid.
+     */
+    public MouseFollowAndResizeGrid() {
+        this.setLayout(null);
+        viewport.setOpaque(false);
+        viewport.setVisible(false);
+        this.add(viewport);
+
+        MouseInputAdapter handler = new MouseInputAdapter() {
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                dispatch(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                dispatch(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                activate(-1, 0, 0);
+            }
+        };
+        this.addMouseListener(handler);
+        this.addMouseMotionListener(handler);
+    }
+
+    /**
+     * Adds a tile.
+     *
+     * @param component     The component to be resized and moved while the mouse is over the tile.
+     * @param componentSize The original size of the component before any scaling.
+     * @param bounds        The bounds of the tile in the grid.
+     */
+    public void addTile(Component component, Dimension componentSize, Rectangle bounds) {
+        index.add(bounds);
+        components.add(component);
+        originalSizes.add(componentSize);
+        repaint(bounds);
+    }
+
+    /**
+     * Sets the same response curve for both dimensions of the tile components.
+     *
+     * @param curve The curve.
+     */
+    public void setScalingCurve(ScalingCurve curve) {
+        setScalingCurves(curve, curve);
+    }
+
+    /**
+     * Sets the response curves of the width and height of the tile components.
+     *
+     * @param horizontal The curve of the width.
+     * @param vertical   The curve of the height.
+     */
+    public void setScalingCurves(ScalingCurve horizontal, ScalingCurve vertical) {
+        horizontalCurve = horizontal;
+        verticalCurve = vertical;
+        if (activeTile >= 0) {
+            rebuildSizes(activeTile);
+        }
+    }
+
+    /**
+     * Precomputes the component sizes of the tile for every distance from a side within it.
+     *
+     * @param tile The tile.
+     */
+    private void rebuildSizes(int tile) {
+        Rectangle bounds = index.getBounds(tile);
+        sizes.rebuild(horizontalCurve, verticalCurve, originalSizes.get(tile), Math.max(bounds.width, bounds.height));
+    }
+
+    /**
+     * @return Number of tiles.
+     */
+    public int getTileCount() {
+        return index.size();
+    }
+
+    /**
+     * Routes the mouse position to the tile under it: switches the active tile if needed
+     * and updates the size and location of the active component.
+     *
+     * @param x The x coordinate of the mouse.
+     * @param y The y coordinate of the mouse.
+     */
+    void dispatch(int x, int y) {
+        int tile = index.find(x, y);
+        if (tile != activeTile) {
+            activate(tile, x, y);
+        }
+        if (tile < 0) return;
+
+        Rectangle bounds = index.getBounds(tile);
+        int localX = x - bounds.x;
+        int localY = y - bounds.y;
+        int distanceToSide = MouseFollowAndResizePanel.getDistanceToSide(
+                localX, localY, bounds.width, bounds.height, entranceSide
+        );
+        int width = sizes.getWidth(distanceToSide);
+        int height = sizes.getHeight(distanceToSide);
+
+        Component component = components.get(tile);
+        component.setBounds(localX - width / 2, localY - height / 2, width, height);
+        component.validate();
+    }
+
+    /**
+     * Makes the tile active: hides the component of the previous one and shows the component of the new one.
+     *
+     * @param tile The tile to activate, or -1 to deactivate all.
+     * @param x    The x coordinate of the mouse.
+     * @param y    The y coordinate of the mouse.
+     */
+    private void activate(int tile, int x, int y) {
+        if (activeTile >= 0) {
+            viewport.remove(components.get(activeTile));
+            viewport.setVisible(false);
+        }
+        activeTile = tile;
+        if (tile < 0) return;
+
+        Rectangle bounds = index.getBounds(tile);
+        entranceSide = MouseFollowAndResizePanel.getClosestSide(
+                x - bounds.x, y - bounds.y, bounds.width, bounds.height
+        );
+        rebuildSizes(tile);
+        viewport.setBounds(bounds);
+        viewport.add(components.get(tile));
+        viewport.setVisible(true);
+    }
+
+    /**
+     * Draws the outlines of the tiles that intersect the clip.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        // left as is if the graphics is not clipped
+        clip.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clip);
+        g.setColor(TILE_BORDER_COLOR);
+        // a follow repaint covers a few tiles, so only they are looked up
+        index.forEachIntersecting(clip, tile -> {
+            Rectangle bounds = index.getBounds(tile);
+            g.drawRect(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+        });
+    }
+}
@@ -1,16 +1,10 @@
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
-import java.util.Arrays;
-import java.util.Comparator;
-
-/**
- * Enum that represents the four sides that the panel has.
- */
-enum Side {
-    TOP, RIGHT, BOTTOM, LEFT
-}
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * The panel that records when mouse enters and the side it enters from.
@@ -24,18 +18,26 @@ enum Side {
  *     <li>k - a scaling factor to adjust sensitivity</li>
  *     <li>distance(mouse, entranceSide) - the distance from the mouse to the side of the panel it entered from</li>
  * </ul>
+ * Other response curves, also different for the width and the height, can be set with
+ * {@link #setScalingCurves(ScalingCurve, ScalingCurve)}. The curves are precomputed into a {@link SizeLookupTable}
+ * whenever they or the panel size change.
  */
 public class MouseFollowAndResizePanel extends JPanel {
 
     /**
      * Initial scaling factor b from the formula above.
      */
-    private final int INITIAL_SCALE = 2;
+    static final int INITIAL_SCALE = 2;
 
     /**
      * Scaling factor k from the formula above.
      */
-    private final double SCALING_FACTOR = 0.001;
+    private static final double SCALING_FACTOR = 0.001;
+
+    /**
+     * The curve given by the formula above.
+     */
+    static final ScalingCurve DEFAULT_CURVE = ScalingCurve.linear(INITIAL_SCALE, SCALING_FACTOR);
 
     /**
      * The side from which the mouse entered last time.
@@ -47,6 +49,139 @@ public class MouseFollowAndResizePanel extends JPanel {
      */
     private final Dimension originalSize;
 
+    /**
+     * Cached right and bottom edges of the panel in the panel-local coordinates (left and top are always 0).
+     * Updated only when the panel is resized; moving the panel does not change them.
+     */
+    private int panelRight, panelBottom;
+
+    /**
+     * Curves of the component width and height.
+     */
+    private ScalingCurve horizontalCurve = DEFAULT_CURVE, verticalCurve = DEFAULT_CURVE;
+
+    /**
+     * Component sizes by distance, precomputed from the curves for the current panel size.
+     */
+    private final SizeLookupTable sizes = new SizeLookupTable();
+
+    /**
+     * The component that follows the mouse.
+     */
+    private final Component component;
+
+    /**
+     * Frame rate used when the display does not report its refresh rate.
+     */
+    private static final int DEFAULT_FRAMES_PER_SECOND = 60;
+
+    /**
+     * Whether mouse movement only records the target geometry and a frame-paced pass applies it.
+     */
+    private boolean coalescingUpdates = false;
+
+    /**
+     * Timer that applies the latest recorded geometry once per frame in the coalescing mode.
+     */
+    private final Timer frameTimer;
+
+    /**
+     * Whether there is a recorded geometry that has not been applied yet.
+     */
+    private boolean updatePending = false;
+
+    /**
+     * The latest recorded mouse position and size of the component; applied by the next frame in the coalescing mode.
+     */
+    private int pendingMouseX, pendingMouseY, pendingWidth, pendingHeight;
+
+    /**
+     * Predictor of the pointer position at the next frame; null if the component follows the last reported position.
+     */
+    private PointerPredictor predictor;
+
+    /**
+     * The point the component is centered at, computed by {@link #updateFollowPoint(int, int)}.
+     */
+    private int followX, followY;
+
+    /**
+     * Default time in milliseconds the pointer has to rest for the component to be repainted at high quality.
+     */
+    static final int DEFAULT_QUALITY_REST_DELAY = 150;
+
+    /**
+     * Pointer speed in pixels per second above which the component is hinted to paint fast.
+     */
+    static final double MOTION_SPEED = 100;
+
+    /**
+     * Time constant of the smoothed pointer speed in nanoseconds: an earlier speed loses its weight
+     * by a factor of e over this time, so a stale speed does not outlive a pause of the pointer.
+     */
+    private static final double SPEED_DECAY = 20_000_000;
+
+    /**
+     * Whether the render quality of the component is hinted by the pointer velocity.
+     */
+    private boolean adaptiveQuality = false;
+
+    /**
+     * Time in milliseconds the pointer has to rest for the component to be repainted at high quality.
+     */
+    private int qualityRestDelay = DEFAULT_QUALITY_REST_DELAY;
+
+    /**
+     * The quality the component is currently hinted to paint with.
+     */
+    private RenderQuality quality = RenderQuality.HIGH;
+
+    /**
+     * Timer that checks whether the pointer has rested long enough; runs only while the quality is fast.
+     */
+    private final Timer qualityTimer;
+
+    /**
+     * Smoothed pointer speed in pixels per second.
+     */
+    private double pointerSpeed = 0;
+
+    /**
+     * Time and position of the last pointer sample used for the speed.
+     */
+    private long lastMoveTime;
+    private int lastMoveX, lastMoveY;
+
+    /**
+     * Time the pointer last moved faster than {@link #MOTION_SPEED}, in nanoseconds.
+     */
+    private long lastMotionTime;
+
+    /**
+     * The runtime metrics; null if they are disabled.
+     */
+    private final FollowMetrics metrics = FollowMetrics.ENABLED ? FollowMetrics.get() : null;
+
+    /**
+     * Time of the first mouse event that has not been painted yet, in nanoseconds; 0 if there is none.
+     */
+    private long unpaintedEventTime = 0;
+
+    /**
+     * Recorder of the mouse events; null if the panel is not recording.
+     */
+    private MouseTraceRecorder recorder;
+
+    /**
+     * Number of mouse movement events received.
+     */
+    private long eventsReceived = 0;
+
+    /**
+     * Number of frames that applied the recorded geometry to the component.
+     */
+    private long framesApplied = 0;
+
     /**
      * Generates a mouse input adapter that handles mouse events such as entering, exiting, and movement.
      * <p>
@@ -66,18 +201,32 @@ public class MouseFollowAndResizePanel extends JPanel {
             public void mouseEntered(MouseEvent e) {
                 super.mouseEntered(e);
 
-                entranceSide = getClosestSide(e.getLocationOnScreen());
+                entranceSide = getClosestSide(e.getX(), e.getY());
+                if (adaptiveQuality) {
+                    pointerSpeed = 0;
+                    lastMoveTime = System.nanoTime();
+                    lastMoveX = e.getX();
+                    lastMoveY = e.getY();
+                }
+                if (predictor != null) {
+                    predictor.reset();
+                    predictor.add(System.nanoTime(), e.getX(), e.getY());
+                }
                 component.setVisible(true);
-                component.setSize(new Dimension(
-                        originalSize.width / INITIAL_SCALE,
-                        originalSize.height / INITIAL_SCALE
-                ));
+                component.setSize(sizes.getWidth(0), sizes.getHeight(0));
             }
 
             @Override
             public void mouseExited(MouseEvent e) {
                 super.mouseExited(e);
 
+                updatePending = false;
+                if (predictor != null) {
+                    predictor.reset();
+                }
+                if (adaptiveQuality) {
+                    setQuality(RenderQuality.HIGH);
+                }
                 component.setVisible(false);
             }
 
@@ -86,24 +235,359 @@ public class MouseFollowAndResizePanel extends JPanel {
                 super.mouseMoved(e);
                 assert entranceSide != null;
 
-                int distanceToSide = getDistanceToSide(e.getLocationOnScreen(), entranceSide);
-                component.setSize(calculateCurrentComponentSize(distanceToSide));
-                centerComponentAtMouse(component, e.getPoint());
-                component.revalidate();
+                long start = FollowMetrics.ENABLED ? System.nanoTime() : 0;
+                if (FollowMetrics.ENABLED && unpaintedEventTime == 0) {
+                    unpaintedEventTime = start;
+                }
+
+                eventsReceived++;
+                if (predictor != null) {
+                    predictor.add(System.nanoTime(), e.getX(), e.getY());
+                }
+                if (adaptiveQuality) {
+                    trackPointerSpeed(e.getX(), e.getY());
+                }
+                int distanceToSide = getDistanceToSide(e.getX(), e.getY(), entranceSide);
+                int width = sizes.getWidth(distanceToSide);
+                int height = sizes.getHeight(distanceToSide);
+                if (coalescingUpdates) {
+                    recordPendingUpdate(width, height, e.getX(), e.getY());
+                } else {
+                    countFrame();
+                    updateFollowPoint(e.getX(), e.getY());
+                    component.setBounds(followX - width / 2, followY - height / 2, width, height);
+                    component.revalidate();
+                }
+
+                if (FollowMetrics.ENABLED) {
+                    metrics.recordEvent(System.nanoTime() - start);
+                }
             }
         };
     }
 
     /**
-     * Centers the component relative to the mouse location.
+     * Records the geometry the component should have at the next frame and makes sure the frame timer is running.
+     *
+     * @param width  The new width of the component.
+     * @param height The new height of the component.
+     * @param mouseX The x coordinate of the mouse.
+     * @param mouseY The y coordinate of the mouse.
+     */
+    private void recordPendingUpdate(int width, int height, int mouseX, int mouseY) {
+        pendingWidth = width;
+        pendingHeight = height;
+        pendingMouseX = mouseX;
+        pendingMouseY = mouseY;
+        updatePending = true;
+        if (!frameTimer.isRunning()) {
+            frameTimer.start();
+        }
+    }
+
+    /**
+     * Applies the latest recorded geometry to the component, lays it out
+     * and repaints only the union of its old and new bounds.
+     * Stops the frame timer if there is nothing to apply.
+     * Called by the frame timer; package-private so that frames can be applied without waiting for it.
+     */
+    void applyPendingUpdate() {
+        if (!updatePending) {
+            frameTimer.stop();
+            return;
+        }
+        updatePending = false;
+        countFrame();
+
+        // the union is computed in ints, as this runs on every frame and must not allocate
+        int oldX = component.getX(), oldY = component.getY();
+        int oldRight = oldX + component.getWidth(), oldBottom = oldY + component.getHeight();
+        updateFollowPoint(pendingMouseX, pendingMouseY);
+        int x = followX - pendingWidth / 2, y = followY - pendingHeight / 2;
+        component.setBounds(x, y, pendingWidth, pendingHeight);
+        component.validate();
+        int left = Math.min(oldX, x), top = Math.min(oldY, y);
+        repaint(left, top,
+                Math.max(oldRight, x + pendingWidth) - left,
+                Math.max(oldBottom, y + pendingHeight) - top);
+    }
+
+    /**
+     * Updates the smoothed pointer speed and switches the component to the fast quality while the pointer moves fast.
      *
-     * @param component     The component to be centered.
-     * @param mousePosition The current mouse position.
+     * @param x The x coordinate of the mouse.
+     * @param y The y coordinate of the mouse.
      */
-    private void centerComponentAtMouse(Component component, Point mousePosition) {
-        mousePosition.x -= component.getSize().width / 2;
-        mousePosition.y -= component.getSize().height / 2;
-        component.setLocation(mousePosition);
+    private void trackPointerSpeed(int x, int y) {
+        long now = System.nanoTime();
+        long elapsed = now - lastMoveTime;
+        if (elapsed > 0) {
+            double speed = Math.hypot(x - lastMoveX, y - lastMoveY) * 1e9 / elapsed;
+            pointerSpeed = speed + (pointerSpeed - speed) * Math.exp(-elapsed / SPEED_DECAY);
+        }
+        lastMoveTime = now;
+        lastMoveX = x;
+        lastMoveY = y;
+        if (pointerSpeed > MOTION_SPEED) {
+            lastMotionTime = now;
+            if (quality == RenderQuality.FAST) return;
+            setQuality(RenderQuality.FAST);
+            // checking the rest with a running timer does not schedule anything per event
+            qualityTimer.start();
+        }
+    }
+
+    /**
+     * Switches the component back to the high quality once the pointer has rested long enough.
+     *
+     * @param e The timer event.
+     */
+    private void checkPointerRest(ActionEvent e) {
+        if (System.nanoTime() - lastMotionTime >= qualityRestDelay * 1_000_000L) {
+            // the pointer has rested, so the speed before the rest must not count
+            pointerSpeed = 0;
+            setQuality(RenderQuality.HIGH);
+        }
+    }
+
+    /**
+     * Hints the component to paint with the quality; a switch to the high quality repaints it.
+     *
+     * @param quality The quality.
+     */
+    private void setQuality(RenderQuality quality) {
+        if (this.quality == quality) return;
+        this.quality = quality;
+        if (component instanceof JComponent) {
+            ((JComponent) component).putClientProperty(RenderQuality.PROPERTY, quality);
+        }
+        if (quality == RenderQuality.HIGH) {
+            qualityTimer.stop();
+            component.repaint();
+        }
+    }
+
+    /**
+     * Computes the point the component is centered at: the mouse position,
+     * or with the prediction, where the pointer is expected to be when the next frame is shown.
+     *
+     * @param mouseX The x coordinate of the last reported mouse position.
+     * @param mouseY The y coordinate of the last reported mouse position.
+     */
+    private void updateFollowPoint(int mouseX, int mouseY) {
+        if (predictor == null) {
+            followX = mouseX;
+            followY = mouseY;
+            return;
+        }
+        predictor.predict(System.nanoTime() + frameTimer.getDelay() * 1_000_000L);
+        followX = predictor.getPredictedX();
+        followY = predictor.getPredictedY();
+    }
+
+    /**
+     * Counts a frame that applied the geometry of the component.
+     */
+    private void countFrame() {
+        framesApplied++;
+        if (FollowMetrics.ENABLED) {
+            metrics.recordFrame();
+        }
+    }
+
+    /**
+     * Validates the panel, recording the layout time into the metrics.
+     */
+    @Override
+    protected void validateTree() {
+        if (!FollowMetrics.ENABLED) {
+            super.validateTree();
+            return;
+        }
+        long start = System.nanoTime();
+        super.validateTree();
+        metrics.recordLayout(System.nanoTime() - start);
+    }
+
+    /**
+     * Paints the component, recording the paint time and the time since the first event that was not painted yet.
+     */
+    @Override
+    protected void paintChildren(Graphics g) {
+        if (!FollowMetrics.ENABLED) {
+            super.paintChildren(g);
+            return;
+        }
+        long start = System.nanoTime();
+        super.paintChildren(g);
+        long end = System.nanoTime();
+        metrics.recordPaint(end - start);
+        if (unpaintedEventTime != 0) {
+            metrics.recordFollowLatency(end - unpaintedEventTime);
+            unpaintedEventTime = 0;
+        }
+    }
+
+    /**
+     * Determines the frame rate from the refresh rate of the display the panel is shown on.
+     *
+     * @return The refresh rate of the display, or {@link #DEFAULT_FRAMES_PER_SECOND} if it is unknown.
+     */
+    private int getDisplayFramesPerSecond() {
+        if (GraphicsEnvironment.isHeadless()) return DEFAULT_FRAMES_PER_SECOND;
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        GraphicsDevice device = configuration != null
+                ? configuration.getDevice()
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+        int refreshRate = device.getDisplayMode().getRefreshRate();
+        return refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_FRAMES_PER_SECOND : refreshRate;
+    }
+
+    /**
+     * Enables or disables the coalescing update mode.
+     * In this mode mouse movement only records the latest geometry of the component,
+     * and it is applied at most once per frame.
+     *
+     * @param coalescingUpdates Whether the updates should be coalesced.
+     */
+    public void setCoalescingUpdates(boolean coalescingUpdates) {
+        this.coalescingUpdates = coalescingUpdates;
+        if (!coalescingUpdates) {
+            updatePending = false;
+            frameTimer.stop();
+        }
+    }
+
+    /**
+     * Sets the rate at which the coalesced updates are applied.
+     * By default, it is the refresh rate of the display.
+     *
+     * @param framesPerSecond Number of frames per second; must be positive.
+     */
+    public void setFramesPerSecond(int framesPerSecond) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frames per second must be positive: " + framesPerSecond);
+        }
+        frameTimer.setDelay(getFrameDelay(framesPerSecond));
+    }
+
+    /**
+     * @param framesPerSecond Number of frames per second; positive.
+     * @return The delay between frames in milliseconds, at least 1 so that a high rate does not make the timer spin.
+     */
+    private static int getFrameDelay(int framesPerSecond) {
+        return Math.max(1, 1000 / framesPerSecond);
+    }
+
+    /**
+     * Enables or disables the pointer prediction. With it the component is centered where the pointer is expected
+     * to be one frame later, which hides the lag between the mouse event and the frame on fast movements.
+     *
+     * @param predictor The predictor to use, or null to follow the last reported mouse position.
+     */
+    public void setPointerPrediction(PointerPredictor predictor) {
+        this.predictor = predictor;
+        if (predictor != null) {
+            predictor.reset();
+        }
+    }
+
+    /**
+     * Enables or disables the adaptive render quality. With it the component is hinted through
+     * {@link RenderQuality#PROPERTY} to paint fast while the pointer moves, and repainted at high quality
+     * once the pointer rests.
+     *
+     * @param adaptiveQuality Whether the render quality should follow the pointer velocity.
+     */
+    public void setAdaptiveRenderQuality(boolean adaptiveQuality) {
+        this.adaptiveQuality = adaptiveQuality;
+        if (!adaptiveQuality) {
+            // the pointer has rested, so the speed before the rest must not count
+            pointerSpeed = 0;
+            setQuality(RenderQuality.HIGH);
+        }
+    }
+
+    /**
+     * Sets how long the pointer has to rest for the component to be repainted at high quality.
+     *
+     * @param restDelay The time in milliseconds; must be positive.
+     */
+    public void setQualityRestDelay(int restDelay) {
+        if (restDelay <= 0) {
+            throw new IllegalArgumentException("Rest delay must be positive: " + restDelay);
+        }
+        qualityRestDelay = restDelay;
+        qualityTimer.setDelay(Math.max(1, restDelay / 4));
+    }
+
+    /**
+     * Sets the same response curve for both dimensions of the component.
+     *
+     * @param curve The curve.
+     */
+    public void setScalingCurve(ScalingCurve curve) {
+        setScalingCurves(curve, curve);
+    }
+
+    /**
+     * Sets the response curves of the component width and height.
+     *
+     * @param horizontal The curve of the width.
+     * @param vertical   The curve of the height.
+     */
+    public void setScalingCurves(ScalingCurve horizontal, ScalingCurve vertical) {
+        horizontalCurve = horizontal;
+        verticalCurve = vertical;
+        rebuildSizes();
+    }
+
+    /**
+     * Starts recording the mouse events of the panel into a {@link MouseTrace} file,
+     * so that they can be replayed later. Stops the previous recording if there is one.
+     *
+     * @param file The file to record into.
+     * @throws IOException If the file cannot be written.
+     */
+    public void startRecording(Path file) throws IOException {
+        stopRecording();
+        recorder = new MouseTraceRecorder(file, getWidth(), getHeight(), () -> {
+            try {
+                stopRecording();
+            } catch (IOException e) {
+                // the failure that stopped the recording has already been reported
+            }
+        });
+        this.addMouseListener(recorder);
+        this.addMouseMotionListener(recorder);
+    }
+
+    /**
+     * Stops recording the mouse events and closes the trace file. Does nothing if the panel is not recording.
+     *
+     * @throws IOException If the trace file cannot be closed.
+     */
+    public void stopRecording() throws IOException {
+        if (recorder == null) return;
+        this.removeMouseListener(recorder);
+        this.removeMouseMotionListener(recorder);
+        recorder.close();
+        recorder = null;
+    }
+
+    /**
+     * @return Number of mouse movement events received so far.
+     */
+    public long getEventsReceived() {
+        return eventsReceived;
+    }
+
+    /**
+     * @return Number of times the component geometry was actually applied.
+     * Compared to {@link #getEventsReceived()} it shows how many updates were coalesced.
+     */
+    public long getFramesApplied() {
+        return framesApplied;
     }
 
     /**
@@ -115,96 +599,140 @@ public class MouseFollowAndResizePanel extends JPanel {
     public MouseFollowAndResizePanel(Component component, Dimension componentSize) {
         this.setLayout(null);
         this.add(component);
+        // the component is shown only while the mouse is over the panel, see the mouse input adapter
+        component.setVisible(false);
+        this.component = component;
         originalSize = componentSize;
+        frameTimer = new Timer(getFrameDelay(getDisplayFramesPerSecond()), e -> applyPendingUpdate());
+        frameTimer.setCoalesce(true);
+        qualityTimer = new Timer(DEFAULT_QUALITY_REST_DELAY / 4, this::checkPointerRest);
+        updatePanelEdges();
         MouseInputAdapter handler = getMouseInputAdapter(component);
         this.addMouseListener(handler);
         this.addMouseMotionListener(handler);
     }
 
     /**
-     * Applies the scaling formula to a number (component dimension).
-     *
-     * @param original       Original dimension.
-     * @param distanceToSide Current distance from mouse to the side of the panel it entered from.
-     * @return The result of the scaling of the original dimension given by the formula in the class description.
+     * Updates the cached edges and the size table whenever the panel is resized.
      */
-    private int calculateCurrentComponentDimension(int original, int distanceToSide) {
-        return Math.min(
-                original / INITIAL_SCALE + (int) ((distanceToSide * SCALING_FACTOR) * original),
-                original
-        );
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean resized = width != getWidth() || height != getHeight();
+        super.setBounds(x, y, width, height);
+        if (resized) {
+            updatePanelEdges();
+        }
     }
 
     /**
-     * Applies the scaling formula to get the current component size.
-     *
-     * @param distanceToSide Current distance from mouse to the side of the panel it entered from.
-     * @return The result of scaling of the component size given by the formula in the class description.
+     * Updates the cached edges of the panel and rebuilds the size table for them. Called when the panel is resized.
+     */
+    private void updatePanelEdges() {
+        panelRight = getWidth();
+        panelBottom = getHeight();
+        rebuildSizes();
+    }
+
+    /**
+     * Precomputes the component sizes for every distance from a side within the panel.
      */
-    private Dimension calculateCurrentComponentSize(int distanceToSide) {
-        return new Dimension(
-                calculateCurrentComponentDimension(originalSize.width, distanceToSide),
-                calculateCurrentComponentDimension(originalSize.height, distanceToSide)
-        );
+    private void rebuildSizes() {
+        sizes.rebuild(horizontalCurve, verticalCurve, originalSize, Math.max(panelRight, panelBottom));
     }
 
     /**
-     * Retrieves the coordinate of the specified side of the panel.
+     * Retrieves the coordinate of the specified side of an area in its local coordinates.
      *
-     * @param side The {@link Side} for which the coordinate is required.
-     * @return The relevant coordinate of the panel's side.
+     * @param side   The {@link Side} for which the coordinate is required.
+     * @param width  The width of the area.
+     * @param height The height of the area.
+     * @return The relevant coordinate of the area's side.
      * If the side is TOP or BOTTOM, returns its y; otherwise returns its x.
      */
-    private int getPanelSide(Side side) {
+    static int getSide(Side side, int width, int height) {
         // if side in {top, bottom} returns y; otherwise returns x
-        Point panelLocation = getLocationOnScreen();
-        Dimension panelSize = getSize();
-
-        if (side == Side.TOP) return panelLocation.y;
-        else if (side == Side.RIGHT) return panelLocation.x + panelSize.width;
-        else if (side == Side.BOTTOM) return panelLocation.y + panelSize.height;
-        else return panelLocation.x;
+        if (side == Side.TOP) return 0;
+        else if (side == Side.RIGHT) return width;
+        else if (side == Side.BOTTOM) return height;
+        else return 0;
     }
 
     /**
-     * @param p    The point whose coordinate is returned.
+     * @param x    The x coordinate of the point.
+     * @param y    The y coordinate of the point.
      * @param side The side that we compute the coordinate for.
      * @return The coordinate relevant for this side.
-     * If the side is TOP or BOTTOM, returns its y; otherwise returns its x.
+     * If the side is TOP or BOTTOM, returns y; otherwise returns x.
      */
-    private int getRelevantCoordinate(Point p, Side side) {
+    private static int getRelevantCoordinate(int x, int y, Side side) {
         if (side == Side.TOP || side == Side.BOTTOM) {
-            return p.y;
+            return y;
         } else {
-            return p.x;
+            return x;
         }
     }
 
     /**
-     * @param p The point which we compute the distance from.
+     * Finds the closest side of an area without allocating: on ties the first side in the order
+     * TOP, RIGHT, BOTTOM, LEFT wins.
+     *
+     * @param x      The x coordinate of the point in the area-local coordinates.
+     * @param y      The y coordinate of the point in the area-local coordinates.
+     * @param width  The width of the area.
+     * @param height The height of the area.
      * @return The {@link Side} closest to the specified point.
      */
-    private Side getClosestSide(Point p) {
+    static Side getClosestSide(int x, int y, int width, int height) {
         // not always clear: what if it is diagonal?
         // for now let's just return something; may be improved later
+        Side closest = Side.TOP;
+        int minDistance = getDistanceToSide(x, y, width, height, Side.TOP);
 
-        int[][] distances = new int[][]{
-                new int[]{Math.abs(getPanelSide(Side.TOP) - p.y), 0}, // top
-                new int[]{Math.abs(getPanelSide(Side.RIGHT) - p.x), 1}, // right
-                new int[]{Math.abs(getPanelSide(Side.BOTTOM) - p.y), 2}, // bottom
-                new int[]{Math.abs(getPanelSide(Side.LEFT) - p.x), 3}, // left
-        };
-        Arrays.sort(distances, Comparator.comparingInt(a -> a[0]));
+        int distance = getDistanceToSide(x, y, width, height, Side.RIGHT);
+        if (distance < minDistance) {
+            closest = Side.RIGHT;
+            minDistance = distance;
+        }
+        distance = getDistanceToSide(x, y, width, height, Side.BOTTOM);
+        if (distance < minDistance) {
+            closest = Side.BOTTOM;
+            minDistance = distance;
+        }
+        distance = getDistanceToSide(x, y, width, height, Side.LEFT);
+        if (distance < minDistance) {
+            closest = Side.LEFT;
+        }
+        return closest;
+    }
 
-        return Side.values()[distances[0][1]];
+    /**
+     * @param x      The x coordinate of the point in the area-local coordinates.
+     * @param y      The y coordinate of the point in the area-local coordinates.
+     * @param width  The width of the area.
+     * @param height The height of the area.
+     * @param side   The {@link Side} to calculate the distance to.
+     * @return The distance from the point to the area's side.
+     */
+    static int getDistanceToSide(int x, int y, int width, int height, Side side) {
+        return Math.abs(getRelevantCoordinate(x, y, side) - getSide(side, width, height));
+    }
+
+    /**
+     * @param x The x coordinate of the point in the panel-local coordinates.
+     * @param y The y coordinate of the point in the panel-local coordinates.
+     * @return The {@link Side} of the panel closest to the specified point; uses the cached edges.
+     */
+    private Side getClosestSide(int x, int y) {
+        return getClosestSide(x, y, panelRight, panelBottom);
     }
 
     /**
-     * @param p    The point which we compute the distance from.
+     * @param x    The x coordinate of the point in the panel-local coordinates.
+     * @param y    The y coordinate of the point in the panel-local coordinates.
      * @param side The {@link Side} to calculate the distance to.
-     * @return The distance from the point to the panel's side.
+     * @return The distance from the point to the panel's side; uses the cached edges.
      */
-    private int getDistanceToSide(Point p, Side side) {
-        return Math.abs(getRelevantCoordinate(p, side) - getPanelSide(side));
+    private int getDistanceToSide(int x, int y, Side side) {
+        return getDistanceToSide(x, y, panelRight, panelBottom, side);
     }
 }
@@ -0,0 +1,219 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Recorded stream of mouse events over a panel: entering, moving and exiting, with timestamps and coordinates.
+ * <p>
+ * The binary format is compact, as traces of fast mice get long:
+ * <pre>
+ * header: magic (int), version (int), panel width (int), panel height (int)
+ * event:  type (byte), time since the previous event in microseconds (varint),
+ *         x and y relative to the previous event (zigzag varints)
+ * </pre>
+ * Events follow until the end of the file, so a trace can be written while it is recorded.
+ */
+public class MouseTrace {
+    static final byte ENTERED = 0;
+    static final byte MOVED = 1;
+    static final byte EXITED = 2;
+
+    private static final int MAGIC = 0x4D545243;
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the panel the trace was recorded on.
+     */
+    private final int width, height;
+
+    private byte[] types = new byte[64];
+    private long[] times = new long[64];
+    private int[] xs = new int[64];
+    private int[] ys = new int[64];
+    private int size = 0;
+
+    /**
+     * Creates an empty trace.
+     *
+     * @param width  The width of the panel the trace is recorded on.
+     * @param height The height of the panel the trace is recorded on.
+     */
+    MouseTrace(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Adds an event to the end of the trace.
+     *
+     * @param type  One of {@link #ENTERED}, {@link #MOVED}, {@link #EXITED}.
+     * @param nanos The time of the event in nanoseconds; must not be smaller than the time of the previous event.
+     * @param x     The x coordinate of the mouse in the panel.
+     * @param y     The y coordinate of the mouse in the panel.
+     */
+    void add(byte type, long nanos, int x, int y) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        types[size] = type;
+        times[size] = nanos;
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    byte getType(int event) {
+        return types[event];
+    }
+
+    /**
+     * @param event The index of the event.
+     * @return The time of the event in nanoseconds since the first event.
+     */
+    long getTime(int event) {
+        return times[event] - times[0];
+    }
+
+    int getX(int event) {
+        return xs[event];
+    }
+
+    int getY(int event) {
+        return ys[event];
+    }
+
+    /**
+     * Writes the trace to a file.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    void write(Path file) throws IOException {
+        try (Writer writer = new Writer(Files.newOutputStream(file), width, height)) {
+            for (int i = 0; i < size; i++) {
+                writer.write(types[i], times[i], xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a trace from a file.
+     *
+     * @param file The file.
+     * @return The trace.
+     * @throws IOException If the file cannot be read or is not a valid trace.
+     */
+    static MouseTrace read(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Not a mouse trace: " + file);
+            }
+            MouseTrace trace = new MouseTrace(input.readInt(), input.readInt());
+            long time = 0;
+            int x = 0, y = 0;
+            int type;
+            while ((type = input.read()) != -1) {
+                if (type > EXITED) {
+                    throw new IOException("Unknown event type " + type + " in " + file);
+                }
+                time += readVarLong(input) * 1000;
+                x += decodeZigZag(readVarLong(input));
+                y += decodeZigZag(readVarLong(input));
+                trace.add((byte) type, time, x, y);
+            }
+            return trace;
+        }
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int decodeZigZag(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    /**
+     * Streaming writer of the trace format.
+     */
+    static class Writer implements Closeable {
+        private final DataOutputStream output;
+        private long previousMicros = -1;
+        private int previousX = 0, previousY = 0;
+
+        /**
+         * Creates the writer and writes the header.
+         *
+         * @param output The stream to write to; closed together with the writer.
+         * @param width  The width of the panel.
+         * @param height The height of the panel.
+         * @throws IOException If the header cannot be written.
+         */
+        Writer(OutputStream output, int width, int height) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(output));
+            this.output.writeInt(MAGIC);
+            this.output.writeInt(VERSION);
+            this.output.writeInt(width);
+            this.output.writeInt(height);
+        }
+
+        /**
+         * Writes an event.
+         *
+         * @param type  The type of the event.
+         * @param nanos The time of the event in nanoseconds.
+         * @param x     The x coordinate of the mouse.
+         * @param y     The y coordinate of the mouse.
+         * @throws IOException If the event cannot be written.
+         */
+        void write(byte type, long nanos, int x, int y) throws IOException {
+            long micros = nanos / 1000;
+            output.writeByte(type);
+            writeVarLong(previousMicros < 0 ? 0 : Math.max(0, micros - previousMicros));
+            writeVarLong(encodeZigZag(x - previousX));
+            writeVarLong(encodeZigZag(y - previousY));
+            previousMicros = micros;
+            previousX = x;
+            previousY = y;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                output.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            output.writeByte((int) value);
+        }
+
+        private static long encodeZigZag(int value) {
+            return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import javax.swing.event.MouseInputAdapter;
+import java.awt.event.MouseEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Mouse listener that records the events of a panel into a {@link MouseTrace} file as they arrive.
+ * Events are timestamped when they are received, with nanosecond precision.
+ * If a write fails, the failure is reported once and the recording is stopped.
+ */
+class MouseTraceRecorder extends MouseInputAdapter implements Closeable {
+    private final MouseTrace.Writer writer;
+
+    /**
+     * Called on the event dispatch thread when a write fails, to stop the recording.
+     */
+    private final Runnable onFailure;
+
+    /**
+     * Whether a write has failed; the events after it are ignored.
+     */
+    private boolean failed = false;
+
+    /**
+     * Creates the recorder and writes the trace header.
+     *
+     * @param file      The file to record into.
+     * @param width     The width of the panel.
+     * @param height    The height of the panel.
+     * @param onFailure Called when a write fails, to stop the recording.
+     * @throws IOException If the file cannot be written.
+     */
+    MouseTraceRecorder(Path file, int width, int height, Runnable onFailure) throws IOException {
+        writer = new MouseTrace.Writer(Files.newOutputStream(file), width, height);
+        this.onFailure = onFailure;
+    }
+
+    @Override
+    public void mouseEntered(MouseEvent e) {
+        record(MouseTrace.ENTERED, e);
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        record(MouseTrace.MOVED, e);
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+        record(MouseTrace.EXITED, e);
+    }
+
+    private void record(byte type, MouseEvent e) {
+        if (failed) return;
+        try {
+            writer.write(type, System.nanoTime(), e.getX(), e.getY());
+        } catch (IOException exception) {
+            // an exception thrown out of a listener would break the dispatch of the event
+            failed = true;
+            System.out.println("Can't record the mouse trace, recording stopped: " + exception.getMessage());
+            onFailure.run();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Predicts where the pointer will be a short time ahead, so that the component can be drawn where the pointer is
+ * when the frame is shown rather than where it was when the event was sent.
+ * <p>
+ * The recent samples (time, x, y) are kept in a ring buffer, and the velocity is the least-squares slope over them,
+ * optionally smoothed with the previous estimate. The prediction extrapolates the last sample linearly,
+ * never further ahead than {@link #MAX_HORIZON} and never further away from the last sample than the overshoot cap.
+ * A pause between samples longer than {@link #MAX_SAMPLE_GAP} drops the older samples, as the pointer has stopped.
+ * <p>
+ * Nothing is allocated after construction.
+ */
+public class PointerPredictor {
+    /**
+     * Default number of samples the velocity is estimated from.
+     */
+    static final int DEFAULT_WINDOW = 4;
+
+    /**
+     * Default weight of the previous velocity estimate.
+     */
+    static final double DEFAULT_SMOOTHING = 0.3;
+
+    /**
+     * Default cap of the distance between the prediction and the last sample, in pixels.
+     */
+    static final int DEFAULT_MAX_OVERSHOOT = 40;
+
+    /**
+     * The prediction never looks further ahead than this, in nanoseconds.
+     */
+    static final long MAX_HORIZON = 50_000_000L;
+
+    /**
+     * A pause between samples longer than this, in nanoseconds, means the pointer has stopped.
+     */
+    static final long MAX_SAMPLE_GAP = 100_000_000L;
+
+    /**
+     * Weight of the previous velocity estimate, in [0, 1); 0 disables smoothing.
+     */
+    private final double smoothing;
+
+    /**
+     * Cap of the distance between the prediction and the last sample, in pixels.
+     */
+    private final int maxOvershoot;
+
+    /**
+     * Ring buffer of the recent samples.
+     */
+    private final long[] times;
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * Index of the next sample in the ring buffer and the number of the buffered samples.
+     */
+    private int next = 0, count = 0;
+
+    /**
+     * The current velocity estimate, in pixels per nanosecond.
+     */
+    private double velocityX, velocityY;
+
+    /**
+     * The result of the last {@link #predict(long)}.
+     */
+    private int predictedX, predictedY;
+
+    /**
+     * Creates the predictor with the default parameters.
+     */
+    public PointerPredictor() {
+        this(DEFAULT_WINDOW, DEFAULT_SMOOTHING, DEFAULT_MAX_OVERSHOOT);
+    }
+
+    /**
+     * Creates the predictor.
+     *
+     * @param window       Number of recent samples the velocity is estimated from; at least 2.
+     * @param smoothing    Weight of the previous velocity estimate in the new one, in [0, 1); 0 disables smoothing.
+     * @param maxOvershoot Cap of the distance between the prediction and the last sample, in pixels;
+     *                     0 disables the prediction.
+     */
+    public PointerPredictor(int window, double smoothing, int maxOvershoot) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must contain at least 2 samples: " + window);
+        }
+        if (smoothing < 0 || smoothing >= 1) {
+            throw new IllegalArgumentException("Smoothing must be in [0, 1): " + smoothing);
+        }
+        if (maxOvershoot < 0) {
+            throw new IllegalArgumentException("Overshoot must not be negative: " + maxOvershoot);
+        }
+        this.smoothing = smoothing;
+        this.maxOvershoot = maxOvershoot;
+        times = new long[window];
+        xs = new int[window];
+        ys = new int[window];
+    }
+
+    /**
+     * Forgets all the samples, for example when the pointer leaves the panel.
+     */
+    public void reset() {
+        next = 0;
+        count = 0;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    /**
+     * Adds a sample and updates the velocity estimate.
+     *
+     * @param nanos The time of the sample in nanoseconds; must not be smaller than the time of the previous sample.
+     * @param x     The x coordinate of the pointer.
+     * @param y     The y coordinate of the pointer.
+     */
+    public void add(long nanos, int x, int y) {
+        if (count > 0 && nanos - times[last()] > MAX_SAMPLE_GAP) {
+            reset();
+        }
+        times[next] = nanos;
+        xs[next] = x;
+        ys[next] = y;
+        next = (next + 1) % times.length;
+        count = Math.min(count + 1, times.length);
+        updateVelocity();
+    }
+
+    /**
+     * Least-squares slope of the buffered samples, blended with the previous estimate.
+     */
+    private void updateVelocity() {
+        if (count < 2) return;
+        // times are taken relative to the last sample to keep the sums small
+        long origin = times[last()];
+        double sumT = 0, sumX = 0, sumY = 0;
+        for (int i = 0; i < count; i++) {
+            sumT += times[i] - origin;
+            sumX += xs[i];
+            sumY += ys[i];
+        }
+        double meanT = sumT / count, meanX = sumX / count, meanY = sumY / count;
+        double varianceT = 0, covarianceX = 0, covarianceY = 0;
+        for (int i = 0; i < count; i++) {
+            double t = times[i] - origin - meanT;
+            varianceT += t * t;
+            covarianceX += t * (xs[i] - meanX);
+            covarianceY += t * (ys[i] - meanY);
+        }
+        // samples with the same time carry no information about the velocity
+        if (varianceT == 0) return;
+        velocityX = smoothing * velocityX + (1 - smoothing) * covarianceX / varianceT;
+        velocityY = smoothing * velocityY + (1 - smoothing) * covarianceY / varianceT;
+    }
+
+    /**
+     * Predicts the position of the pointer at the given time; read it with {@link #getPredictedX()}
+     * and {@link #getPredictedY()}. Without samples the prediction is (0, 0).
+     *
+     * @param nanos The time to predict the position at, in nanoseconds.
+     */
+    public void predict(long nanos) {
+        if (count == 0) {
+            predictedX = predictedY = 0;
+            return;
+        }
+        int last = last();
+        long horizon = Math.max(0, Math.min(nanos - times[last], MAX_HORIZON));
+        double dx = velocityX * horizon;
+        double dy = velocityY * horizon;
+        double distance = Math.hypot(dx, dy);
+        if (distance > maxOvershoot) {
+            dx *= maxOvershoot / distance;
+            dy *= maxOvershoot / distance;
+        }
+        predictedX = xs[last] + (int) Math.round(dx);
+        predictedY = ys[last] + (int) Math.round(dy);
+    }
+
+    /**
+     * @return The x coordinate from the last {@link #predict(long)}.
+     */
+    public int getPredictedX() {
+        return predictedX;
+    }
+
+    /**
+     * @return The y coordinate from the last {@link #predict(long)}.
+     */
+    public int getPredictedY() {
+        return predictedY;
+    }
+
+    /**
+     * @return The index of the last sample in the ring buffer.
+     */
+    private int last() {
+        return (next - 1 + times.length) % times.length;
+    }
+}
@@ -0,0 +1,74 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for running the preprocessing tasks, and the default one used by {@link PreprocessingPanel}.
+ * <p>
+ * A SwingWorker is a {@link Runnable}, so it can run on any executor and still hands its progress,
+ * intermediate results and completion over to the EDT. Without an executor,
+ * {@link javax.swing.SwingWorker#execute()} uses the shared pool of 10 threads of the JDK.
+ */
+public class PreprocessingExecutors {
+    /**
+     * Executor used by the panels that are not given one; null means {@link javax.swing.SwingWorker#execute()}.
+     */
+    private static Executor defaultExecutor;
+
+    private PreprocessingExecutors() {
+    }
+
+    /**
+     * @return The executor used by the panels that are not given one, or null for the SwingWorker pool.
+     */
+    public static synchronized Executor getDefault() {
+        return defaultExecutor;
+    }
+
+    /**
+     * Sets the executor used by the panels created after this call.
+     *
+     * @param executor The executor, or null for the SwingWorker pool.
+     */
+    public static synchronized void setDefault(Executor executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * Executor for I/O-bound tasks: every task gets its own virtual thread, so blocking does not hold a pool thread.
+     * On JDKs without virtual threads every task gets its own daemon platform thread instead.
+     *
+     * @return The executor.
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "preprocessing");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Executor for CPU-bound tasks: a pool of one thread per core that serves the most urgent task first.
+     *
+     * @return The executor.
+     */
+    public static PriorityTaskExecutor boundedPlatformPool() {
+        return boundedPlatformPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Executor for CPU-bound tasks that serves the most urgent task first.
+     *
+     * @param threads Number of threads.
+     * @return The executor.
+     */
+    public static PriorityTaskExecutor boundedPlatformPool(int threads) {
+        return new PriorityTaskExecutor(threads, "preprocessing");
+    }
+}
@@ -1,17 +1,64 @@
 import javax.swing.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 /**
  * A class that performs a preprocessing task in the background,
  * Displays a progress bar during computation, and shows the result after completion.
  * This class uses SwingWorker as it works robustly with JProgressBar.
+ *
+ * @param <T> The type of the result of the task.
  */
-public class PreprocessingManager implements PropertyChangeListener {
+public class PreprocessingManager<T> implements PropertyChangeListener {
     /**
-     * Background task that performs the computation.
+     * Background task that performs the computation; null if it is not running.
      */
-    private final SwingWorker<Void, Void> task;
+    private SwingWorker<T, ?> task;
+
+    /**
+     * Creates the background tasks; every call must return a new task if the preprocessing is restartable.
+     */
+    private final Supplier<? extends SwingWorker<T, ?>> taskFactory;
+
+    /**
+     * Whether the preprocessing can be paused by cancelling the task and started again with a new task.
+     */
+    private final boolean restartable;
+
+    /**
+     * Whether the task has ever been started.
+     */
+    private boolean started = false;
+
+    /**
+     * Whether the result (or the failure) has been shown.
+     */
+    private boolean finished = false;
+
+    /**
+     * Function that converts the result of the task to the text of the result label.
+     */
+    private final Function<? super T, String> resultText;
+
+    /**
+     * The executor the task runs on; null means {@link SwingWorker#execute()}.
+     */
+    private final Executor executor;
+
+    /**
+     * The priority of the task, used when the executor is a {@link PriorityTaskExecutor}.
+     */
+    private final IntSupplier priority;
 
     /**
      * Progress bar that shows computation progress.
@@ -33,6 +80,58 @@ public class PreprocessingManager implements PropertyChangeListener {
      */
     private final JLabel resultLabel;
 
+    /**
+     * How often the progress of a {@link ProgressReporting} task is sampled, in milliseconds.
+     */
+    private static final int PROGRESS_SAMPLE_INTERVAL = 40;
+
+    /**
+     * How often the chunks of a {@link StreamingWorker} are delivered to the result view, in milliseconds.
+     */
+    private static final int CHUNK_DELIVERY_INTERVAL = 50;
+
+    /**
+     * Number of chunks taken from the channel at once; a delivery takes them until the channel is empty
+     * or its time is up, and then shows them all at once.
+     */
+    private static final int MAX_CHUNKS_PER_DRAIN = 256;
+
+    /**
+     * Time a delivery may keep the EDT busy, in nanoseconds; a fifth of the interval,
+     * so the delivery keeps up with a fast producer without pacing it to a fixed number of chunks per second.
+     */
+    private static final long CHUNK_DELIVERY_BUDGET = CHUNK_DELIVERY_INTERVAL * 1_000_000L / 5;
+
+    /**
+     * Consumer that appends the delivered chunks of a {@link StreamingWorker} to the result view.
+     */
+    private final Consumer<List<?>> showChunks;
+
+    /**
+     * Batch of chunks being delivered; reused between the deliveries.
+     */
+    private final List<Object> chunkBatch = new ArrayList<>();
+
+    /**
+     * Timer that delivers the chunks of a {@link StreamingWorker} on the EDT; null for other tasks.
+     */
+    private Timer chunkDelivery;
+
+    /**
+     * Saves the state of a {@link CheckpointableTask} while it runs; null for other tasks.
+     */
+    private TaskCheckpointer checkpointer;
+
+    /**
+     * Time the task was started, in nanoseconds.
+     */
+    private long startTime;
+
+    /**
+     * Timer that samples the progress of a {@link ProgressReporting} task on the EDT; null for other tasks.
+     */
+    private Timer progressSampler;
+
     /**
      * Property change handler to react to updating progress of the background task and
      * perform the final operation after the task is done.
@@ -40,26 +139,339 @@ public class PreprocessingManager implements PropertyChangeListener {
      */
     @Override
     public void propertyChange(PropertyChangeEvent propertyChangeEvent) {
+        // a paused task may still report its cancellation
+        if (propertyChangeEvent.getSource() != task) return;
+
         if (propertyChangeEvent.getPropertyName().equals("progress")) {
             progressBar.setValue(task.getProgress());
         } else if (propertyChangeEvent.getPropertyName().equals("state")
                 && propertyChangeEvent.getNewValue() == SwingWorker.StateValue.DONE) {
-            disableProgressBarPanel.run();
+            if (FollowMetrics.ENABLED) {
+                recordTaskMetrics();
+            }
+            if (task instanceof StreamingWorker) {
+                // the producer is done, so whatever is left in the channel is all there is
+                deliverChunks((StreamingWorker<?, ?>) task, Long.MAX_VALUE);
+            }
+            showResult(getResultText());
+        }
+    }
+
+    /**
+     * Records the duration of the finished task and, for {@link ProgressReporting} tasks, the processed units.
+     */
+    private void recordTaskMetrics() {
+        long units = task instanceof ProgressReporting
+                ? ((ProgressReporting) task).getProgressTracker().getDoneUnits()
+                : 0;
+        FollowMetrics.get().recordTask(System.nanoTime() - startTime, units);
+    }
+
+    /**
+     * Hides the progress bar panel and shows the result panel.
+     *
+     * @param text The text of the result label.
+     */
+    private void showResult(String text) {
+        finished = true;
+        stopTimers();
+        disableProgressBarPanel.run();
+
+        resultLabel.setText(text);
+        setUpResultPanel.run();
+    }
+
+    /**
+     * Must be called only after the task is done.
+     *
+     * @return The text describing the result of the task, or why there is none.
+     */
+    private String getResultText() {
+        if (task.isCancelled()) {
+            stopCheckpointing(false);
+            return "Cancelled";
+        }
+        try {
+            T result = task.get();
+            stopCheckpointing(true);
+            storeCachedResult(result);
+            return resultText.apply(result);
+        } catch (ExecutionException e) {
+            stopCheckpointing(false);
+            return "Failed: " + e.getCause().getMessage();
+        } catch (InterruptedException e) {
+            // the task is already done, so get() does not wait
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        }
+    }
+
+    /**
+     * Cancels the preprocessing task. The result panel then reports that the task was cancelled.
+     */
+    public void cancel() {
+        if (task != null) {
+            // a task still waiting for the cache lookup reports the cancellation once the lookup is done
+            task.cancel(true);
+        } else if (!finished) {
+            showResult("Cancelled");
+        }
+    }
+
+    /**
+     * Pauses a restartable preprocessing: cancels the running task, keeping the progress bar as it is.
+     * The next {@link #startPreprocessing()} continues with a new task,
+     * which resumes from the partial result if the task supports that.
+     * Does nothing if the preprocessing is not restartable or not running.
+     */
+    public void pausePreprocessing() {
+        if (!restartable || task == null || finished) return;
+        SwingWorker<T, ?> paused = task;
+        task = null;
+        stopTimers();
+        stopCheckpointing(false);
+        paused.cancel(true);
+    }
+
+    /**
+     * Restores a {@link CheckpointableTask} from its latest checkpoint. Runs on a background thread,
+     * before the task is submitted.
+     *
+     * @param task The task.
+     * @return The checkpointer of the task, or null if the task is not checkpointable.
+     */
+    private static TaskCheckpointer restoreCheckpoint(SwingWorker<?, ?> task) {
+        if (!(task instanceof CheckpointableTask)) return null;
+        CheckpointableTask checkpointable = (CheckpointableTask) task;
+        String key = checkpointable.getCheckpointKey();
+        if (key == null) return null;
+        TaskCheckpointer checkpointer = new TaskCheckpointer(CheckpointStore.getDefault(), checkpointable, key);
+        checkpointer.restore();
+        return checkpointer;
+    }
+
+    /**
+     * Stops checkpointing the task.
+     *
+     * @param done Whether the task is done, so the checkpoint is removed; otherwise the last checkpoint is saved.
+     */
+    private void stopCheckpointing(boolean done) {
+        if (checkpointer == null) return;
+        if (done) {
+            checkpointer.finish();
+        } else {
+            checkpointer.stop();
+        }
+        checkpointer = null;
+    }
 
-            resultLabel.setText("Loaded!");
-            // the proper way would be to make the class generic and then have `private T result` and use it here
-            // but i am just doing proof of concept here.
-            setUpResultPanel.run();
+    /**
+     * Stops sampling the progress and delivering the chunks of the current task.
+     */
+    private void stopTimers() {
+        if (progressSampler != null) {
+            progressSampler.stop();
+        }
+        if (chunkDelivery != null) {
+            chunkDelivery.stop();
         }
     }
 
     /**
-     * Starts the preprocessing task in the background.
+     * Takes the waiting chunks from the channel of the worker until it is empty or the time budget is spent,
+     * and shows them in the result view at once. Draining the channel lets the blocked producer continue.
+     *
+     * @param worker The worker producing the chunks.
+     * @param budget Time the draining may take, in nanoseconds.
+     */
+    private void deliverChunks(StreamingWorker<?, ?> worker, long budget) {
+        long start = System.nanoTime();
+        int count;
+        do {
+            count = worker.getChannel().drainTo(chunkBatch, MAX_CHUNKS_PER_DRAIN);
+        } while (count == MAX_CHUNKS_PER_DRAIN && System.nanoTime() - start < budget);
+        if (!chunkBatch.isEmpty()) {
+            showChunks.accept(chunkBatch);
+            chunkBatch.clear();
+        }
+    }
+
+    /**
+     * @return Whether the task is running: it was started, is not paused and is not done.
+     */
+    public boolean isRunning() {
+        return task != null && !finished;
+    }
+
+    /**
+     * @return Whether the task has ever been started.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @return Whether the result of the preprocessing has been shown.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Starts the preprocessing task in the background, or continues it if it was paused.
+     * Does nothing if the task is already running or done.
+     * The result of a {@link CacheableTask} is first looked up in the cache, and a {@link CheckpointableTask}
+     * is restored from its checkpoint, on a background thread, as both read files that other instances may lock;
+     * the task runs only if there is no cached result.
      * NB!!! all the fields should be defined before calling this method!!!
      */
     public void startPreprocessing() {
+        if (finished || task != null) return;
+        started = true;
+        task = taskFactory.get();
+        if (!(task instanceof CacheableTask) && !(task instanceof CheckpointableTask)) {
+            runTask(null);
+            return;
+        }
+        SwingWorker<T, ?> starting = task;
+        CompletableFuture.supplyAsync(() -> prepare(starting))
+                .thenAcceptAsync(preparation -> onPrepared(starting, preparation), SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Looks the result up in the cache and, if there is none, restores the task from its checkpoint.
+     * Runs on a background thread.
+     *
+     * @param task The task.
+     * @return The cached result or the checkpointer of the restored task.
+     */
+    private static <T> Preparation<T> prepare(SwingWorker<T, ?> task) {
+        T cached = loadCachedResult(task);
+        return cached != null ? new Preparation<>(cached, null) : new Preparation<>(null, restoreCheckpoint(task));
+    }
+
+    /**
+     * Shows the cached result, or runs the task if there is none. Called on the EDT after {@link #prepare}.
+     *
+     * @param starting    The task the preparation was made for.
+     * @param preparation The result of the preparation.
+     */
+    private void onPrepared(SwingWorker<T, ?> starting, Preparation<T> preparation) {
+        // paused or finished while the files were being read
+        if (task != starting || finished) return;
+        if (starting.isCancelled()) {
+            showResult("Cancelled");
+        } else if (preparation.cached != null) {
+            showResult(resultText.apply(preparation.cached));
+        } else {
+            runTask(preparation.checkpointer);
+        }
+    }
+
+    /**
+     * Starts the sampling, the delivery and the checkpointing of the current task and submits it.
+     *
+     * @param restored The checkpointer of the restored task, or null if the task is not checkpointable.
+     */
+    private void runTask(TaskCheckpointer restored) {
+        startTime = System.nanoTime();
+        checkpointer = restored;
+        if (checkpointer != null) {
+            checkpointer.start();
+        }
         task.addPropertyChangeListener(this);
-        task.execute();
+        if (task instanceof ProgressReporting) {
+            ProgressTracker tracker = ((ProgressReporting) task).getProgressTracker();
+            // a restored task starts from the restored progress
+            sampleProgress(tracker);
+            progressSampler = new Timer(PROGRESS_SAMPLE_INTERVAL, e -> sampleProgress(tracker));
+            progressSampler.start();
+        }
+        if (task instanceof StreamingWorker) {
+            StreamingWorker<?, ?> worker = (StreamingWorker<?, ?>) task;
+            chunkDelivery = new Timer(CHUNK_DELIVERY_INTERVAL, e -> deliverChunks(worker, CHUNK_DELIVERY_BUDGET));
+            chunkDelivery.start();
+        }
+        if (executor instanceof PriorityTaskExecutor) {
+            ((PriorityTaskExecutor) executor).execute(task, priority);
+        } else if (executor != null) {
+            executor.execute(task);
+        } else {
+            task.execute();
+        }
+    }
+
+    /**
+     * Looks the result of a {@link CacheableTask} up in the default {@link ResultCache}.
+     * A cache that cannot be read is treated as a miss. Runs on a background thread.
+     *
+     * @param task The task.
+     * @return The cached result, or null if the task is not cacheable or there is no result in the cache.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T loadCachedResult(SwingWorker<T, ?> task) {
+        if (!(task instanceof CacheableTask)) return null;
+        CacheableTask<T> cacheable = (CacheableTask<T>) task;
+        String key = cacheable.getCacheKey();
+        if (key == null) return null;
+        try {
+            byte[] bytes = ResultCache.getDefault().get(key);
+            return bytes == null ? null : cacheable.deserializeResult(bytes);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Can't read the cached result: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the result of a {@link CacheableTask} in the default {@link ResultCache} in the background.
+     *
+     * @param result The result of the task.
+     */
+    @SuppressWarnings("unchecked")
+    private void storeCachedResult(T result) {
+        if (!(task instanceof CacheableTask) || result == null) return;
+        CacheableTask<T> cacheable = (CacheableTask<T>) task;
+        String key = cacheable.getCacheKey();
+        if (key == null) return;
+        byte[] bytes = cacheable.serializeResult(result);
+        CompletableFuture.runAsync(() -> {
+            try {
+                ResultCache.getDefault().put(key, bytes);
+            } catch (IOException e) {
+                System.out.println("Can't cache the result: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * What {@link #prepare} found: either the cached result or the checkpointer of the restored task.
+     */
+    private static class Preparation<T> {
+        final T cached;
+        final TaskCheckpointer checkpointer;
+
+        Preparation(T cached, TaskCheckpointer checkpointer) {
+            this.cached = cached;
+            this.checkpointer = checkpointer;
+        }
+    }
+
+    /**
+     * Shows the sampled progress and the estimated remaining time on the progress bar.
+     *
+     * @param tracker The tracker of the task progress.
+     */
+    private void sampleProgress(ProgressTracker tracker) {
+        double fraction = tracker.getFraction();
+        long remainingMillis = tracker.estimateRemainingMillis(fraction);
+        int percent = (int) (fraction * 100);
+        progressBar.setValue(percent);
+        if (remainingMillis < 0) {
+            progressBar.setString(percent + "%");
+        } else {
+            progressBar.setString(percent + "% (" + (remainingMillis + 999) / 1000 + "s left)");
+        }
     }
 
     /**
@@ -71,6 +483,14 @@ public class PreprocessingManager implements PropertyChangeListener {
      * @param disableProgressBarPanel Runnable to hide the progress bar panel after completion.
      * @param resultLabel             The label to display the final result.
      * @param showResultPanel         Runnable that configures the result panel and makes it visible
+     * @param showChunks              Consumer that appends the chunks of a {@link StreamingWorker} to the result view;
+     *                                the list is reused after the call.
+     * @param taskFactory             Creates the background task; called on every start.
+     * @param restartable             Whether the factory returns a new task on every call, so that the
+     *                                preprocessing can be paused and started again.
+     * @param resultText              Function that converts the result of the task to the text of the result label.
+     * @param executor                The executor to run the task on, or null for {@link SwingWorker#execute()}.
+     * @param priority                The priority of the task for a {@link PriorityTaskExecutor}.
      */
     PreprocessingManager(
             JProgressBar progressBar,
@@ -78,12 +498,22 @@ public class PreprocessingManager implements PropertyChangeListener {
             Runnable disableProgressBarPanel,
             JLabel resultLabel,
             Runnable showResultPanel,
-            SwingWorker<Void, Void> task
+            Consumer<List<?>> showChunks,
+            Supplier<? extends SwingWorker<T, ?>> taskFactory,
+            boolean restartable,
+            Function<? super T, String> resultText,
+            Executor executor,
+            IntSupplier priority
     ) {
-        this.task = task;
+        this.taskFactory = taskFactory;
+        this.restartable = restartable;
+        this.resultText = resultText;
+        this.executor = executor;
+        this.priority = priority;
         this.progressBar = progressBar;
         this.resultLabel = resultLabel;
         this.setUpResultPanel = showResultPanel;
+        this.showChunks = showChunks;
         this.disableProgressBarPanel = disableProgressBarPanel;
 
         progressBar.setValue(0);
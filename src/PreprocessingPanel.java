@@ -1,9 +1,42 @@
 import javax.swing.*;
+import javax.swing.event.MouseInputAdapter;
+import javax.swing.text.BadLocationException;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-public class PreprocessingPanel extends JPanel {
+/**
+ * Panel that shows a progress bar while the preprocessing task runs and the result of the task after it is done.
+ *
+ * @param <T> The type of the result of the task.
+ */
+public class PreprocessingPanel<T> extends JPanel {
     private static final Font PROGRESS_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 40);
     private static final Font RESULT_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 60);
+    private static final Font CHUNK_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 20);
+
+    /**
+     * Number of rows of streamed chunks visible at once.
+     */
+    private static final int CHUNK_ROWS = 5;
+
+    /**
+     * Number of the latest chunks kept in the chunk area; the earlier ones are dropped,
+     * so the document does not grow with the whole output of the task.
+     */
+    private static final int MAX_CHUNK_LINES = 1000;
+
+    /**
+     * How often the pointer location is checked for the proximity prefetch, in milliseconds.
+     * The host only reports the pointer over it, so the approach from outside and the departure
+     * to outside the windows of the application are noticed by this check.
+     */
+    private static final int PROXIMITY_CHECK_INTERVAL = 100;
 
     /**
      * Panel to display the progress bar.
@@ -25,88 +58,26 @@ public class PreprocessingPanel extends JPanel {
      */
     private final JLabel resultLabel = new JLabel();
 
-
     /**
-     * Creates a GridBagConstraints object for components based on weightx and weighty.
-     *
-     * @param weightX Horizontal weight of the component; see {@link GridBagConstraints#weightx}.
-     * @param weightY Vertical weight of the component; see {@link GridBagConstraints#weighty}.
-     * @return A configured GridBagConstraints object.
+     * Last progress value reported to the property change listeners.
      */
-    private GridBagConstraints getNoneFillGBC(int weightX, int weightY) {
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.weightx = weightX;
-        gbc.weighty = weightY;
-        return gbc;
-    }
+    private int reportedProgress = 0;
 
     /**
-     * Adds a component to a panel using the specified GridBagConstraints.
-     *
-     * @param panel The target panel.
-     * @param c     The component to add.
-     * @param gbc   The GridBagConstraints for the component.
+     * Text area the chunks of a {@link StreamingWorker} are appended to; created on the first chunk.
      */
-    private void addComponent(JPanel panel, Component c, GridBagConstraints gbc) {
-        panel.add(c, gbc);
-//        JPanel debug = new JPanel();
-//        debug.setSize(100, 100);
-//        debug.setBorder(BorderFactory.createLineBorder(Color.RED, 10));
-//        panel.add(debug, gbc);
-    }
+    private JTextArea chunkArea;
 
     /**
-     * Adds a row of components to a panel with specified constraints.
-     *
-     * @param panel       The target panel.
-     * @param rowIndex    The row index to add components.
-     * @param components  Array of components to add.
-     * @param constraints Array of GridBagConstraints for each component.
-     */
-    private void addRow(JPanel panel, int rowIndex, Component[] components, GridBagConstraints[] constraints) {
-        assert components.length == constraints.length;
-        for (int i = 0; i < components.length; i++) {
-            constraints[i].gridx = i;
-            constraints[i].gridy = rowIndex;
-            addComponent(panel, components[i], constraints[i]);
-        }
-    }
+     * Number of chunks appended to the chunk area.
+     */
+    private int chunkCount = 0;
 
     /**
-     * Centers a component within a panel using GridBagLayout.
-     *
-     * @param panel             The target panel.
-     * @param component         The component to center.
-     * @param verticalWeights   Weights for vertical layout.
-     * @param horizontalWeights Weights for horizontal layout.
+     * Builder of the text of a delivered batch; reused between the batches.
      */
-    private void centerComponent(JPanel panel, Component component, int[] verticalWeights, int[] horizontalWeights) {
-        addRow(
-                panel,
-                0,
-                new Component[]{Box.createVerticalGlue()},
-                new GridBagConstraints[]{getNoneFillGBC(1, verticalWeights[0])}
-        );
-
-        GridBagConstraints[] middleRowConstraints = new GridBagConstraints[3];
-        for (int i = 0; i < 3; i++) {
-            middleRowConstraints[i] = getNoneFillGBC(horizontalWeights[i], 1);
-        }
-        middleRowConstraints[1].fill = GridBagConstraints.BOTH;
-        addRow(
-                panel,
-                1,
-                new Component[]{Box.createHorizontalGlue(), component, Box.createHorizontalGlue()},
-                middleRowConstraints
-        );
+    private final StringBuilder chunkText = new StringBuilder();
 
-        addRow(
-                panel,
-                2,
-                new Component[]{Box.createVerticalGlue()},
-                new GridBagConstraints[]{getNoneFillGBC(1, verticalWeights[2])}
-        );
-    }
 
     /**
      * Configures the progress bar UI.
@@ -114,6 +85,51 @@ public class PreprocessingPanel extends JPanel {
     private void setUpProgressBarUI() {
         progressBar.setStringPainted(true);
         progressBar.setFont(PROGRESS_FONT);
+        progressBar.addChangeListener(e -> reportProgress());
+    }
+
+    /**
+     * Fires the "progress" property change so that hosts caching the look of the panel know it changed.
+     */
+    private void reportProgress() {
+        int progress = progressBar.getValue();
+        firePropertyChange("progress", reportedProgress, progress);
+        reportedProgress = progress;
+    }
+
+    /**
+     * Appends the delivered chunks to the chunk area, one per line, creating the area on the first batch.
+     * The whole batch is a single document insert, and the earlier text is never rebuilt;
+     * only the last {@link #MAX_CHUNK_LINES} lines are kept, so the earlier chunks of a large batch are not even added.
+     *
+     * @param chunks The delivered chunks.
+     */
+    private void appendChunks(List<?> chunks) {
+        if (chunkArea == null) {
+            chunkArea = new JTextArea(CHUNK_ROWS, 0);
+            chunkArea.setEditable(false);
+            chunkArea.setFont(CHUNK_FONT);
+            this.add(new JScrollPane(chunkArea), BorderLayout.SOUTH);
+            this.revalidate();
+        }
+        for (int i = Math.max(0, chunks.size() - MAX_CHUNK_LINES); i < chunks.size(); i++) {
+            chunkText.append(chunks.get(i)).append('\n');
+        }
+        chunkArea.append(chunkText.toString());
+        chunkText.setLength(0);
+        // the text ends with a line break, so the last line is empty
+        int excess = chunkArea.getLineCount() - 1 - MAX_CHUNK_LINES;
+        if (excess > 0) {
+            try {
+                chunkArea.replaceRange(null, 0, chunkArea.getLineStartOffset(excess));
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int previousCount = chunkCount;
+        chunkCount += chunks.size();
+        firePropertyChange("chunks", previousCount, chunkCount);
     }
 
     /**
@@ -128,6 +144,7 @@ public class PreprocessingPanel extends JPanel {
 
     /**
      * Sets up a panel and centers a given component in it using specified layout weights.
+     * The layout caches the bounds, so resizing the panel on every pointer movement stays cheap.
      *
      * @param panel             The target panel.
      * @param component         The component to center.
@@ -135,20 +152,149 @@ public class PreprocessingPanel extends JPanel {
      * @param horizontalWeights Weights for horizontal layout.
      */
     private void setUpPanel(JPanel panel, Component component, int[] verticalWeights, int[] horizontalWeights) {
-        panel.setLayout(new GridBagLayout());
-        centerComponent(panel, component, verticalWeights, horizontalWeights);
+        panel.setLayout(new WeightedCenterLayout(verticalWeights, horizontalWeights));
+        panel.add(component);
         panel.revalidate();
     }
 
 
     /**
-     * Creates the panel. Configures the UI using the GridBagLayout and starts the preprocessing.
+     * The manager of the preprocessing task.
+     */
+    private final PreprocessingManager<T> preprocessing;
+
+    /**
+     * When the task is started and whether it is paused.
+     */
+    private final PreprocessingStartPolicy startPolicy;
+
+    /**
+     * Timer that pauses the task once the pointer has stayed away long enough; null if the task is never paused.
+     */
+    private final Timer pauseTimer;
+
+    /**
+     * Timer that checks the pointer location while the panel is displayable;
+     * null if the proximity prefetch is not used.
+     */
+    private final Timer proximityTimer;
+
+    /**
+     * Listener of the pointer entering, leaving and moving over the host; null if the proximity prefetch is not used.
+     */
+    private final MouseInputAdapter hostListener;
+
+    /**
+     * The host the listener is added to; null if the listener is not added.
+     */
+    private Component host;
+
+    /**
+     * Priority of the task on a {@link PriorityTaskExecutor}: 1 while the pointer is near, 0 otherwise.
+     * Updated on the EDT and read by the pool threads, which must not touch the components.
+     */
+    private volatile int priority = 0;
+
+    /**
+     * Creates the panel that computes the splittable task on the given pool, starting immediately.
+     *
+     * @param task       The task to compute.
+     * @param pool       The pool to compute the task on.
+     * @param resultText Function that converts the result of the task to the displayed text.
+     */
+    PreprocessingPanel(SplittableTask<T> task, ForkJoinPool pool, Function<? super T, String> resultText) {
+        this(task, pool, resultText, PreprocessingStartPolicy.eager());
+    }
+
+    /**
+     * Creates the panel that computes the splittable task on the given pool.
+     * A paused task resumes from the parts it has already finished.
+     *
+     * @param task        The task to compute.
+     * @param pool        The pool to compute the task on.
+     * @param resultText  Function that converts the result of the task to the displayed text.
+     * @param startPolicy When the task is started and whether it is paused.
+     */
+    PreprocessingPanel(
+            SplittableTask<T> task,
+            ForkJoinPool pool,
+            Function<? super T, String> resultText,
+            PreprocessingStartPolicy startPolicy
+    ) {
+        this(getResumingWorkers(task, pool), true, resultText, PreprocessingExecutors.getDefault(), startPolicy);
+    }
+
+    /**
+     * Creates the panel that runs the task on the default executor, see {@link PreprocessingExecutors#getDefault()}.
+     *
+     * @param task       The background task.
+     * @param resultText Function that converts the result of the task to the displayed text.
      */
-    PreprocessingPanel(SwingWorker<Void, Void> task) {
+    PreprocessingPanel(SwingWorker<T, ?> task, Function<? super T, String> resultText) {
+        this(task, resultText, PreprocessingExecutors.getDefault());
+    }
+
+    /**
+     * Creates the panel that starts the task immediately.
+     * If the executor is a {@link PriorityTaskExecutor}, the task is prioritized while the panel is showing,
+     * that is, while it is under the mouse.
+     *
+     * @param task       The background task.
+     * @param resultText Function that converts the result of the task to the displayed text.
+     * @param executor   The executor to run the task on, or null for {@link SwingWorker#execute()}.
+     */
+    PreprocessingPanel(SwingWorker<T, ?> task, Function<? super T, String> resultText, Executor executor) {
+        this(() -> task, false, resultText, executor, PreprocessingStartPolicy.eager());
+    }
+
+    /**
+     * Creates the panel whose task can be paused and started again.
+     *
+     * @param taskFactory Creates a new background task on every call.
+     * @param resultText  Function that converts the result of the task to the displayed text.
+     * @param executor    The executor to run the task on, or null for {@link SwingWorker#execute()}.
+     * @param startPolicy When the task is started and whether it is paused.
+     */
+    PreprocessingPanel(
+            Supplier<? extends SwingWorker<T, ?>> taskFactory,
+            Function<? super T, String> resultText,
+            Executor executor,
+            PreprocessingStartPolicy startPolicy
+    ) {
+        this(taskFactory, true, resultText, executor, startPolicy);
+    }
+
+    /**
+     * @param task The task to compute.
+     * @param pool The pool to compute the task on.
+     * @return Factory of workers that share the results of the finished parts.
+     */
+    private static <T> Supplier<SwingWorker<T, ?>> getResumingWorkers(SplittableTask<T> task, ForkJoinPool pool) {
+        SplittableTaskWorker.PartialResult<T> partialResult = new SplittableTaskWorker.PartialResult<>();
+        return () -> new SplittableTaskWorker<>(task, pool, partialResult);
+    }
+
+    /**
+     * Creates the panel. Configures the UI and starts the preprocessing
+     * according to the start policy.
+     *
+     * @param taskFactory Creates the background task.
+     * @param restartable Whether the factory creates a new task on every call.
+     * @param resultText  Function that converts the result of the task to the displayed text.
+     * @param executor    The executor to run the task on, or null for {@link SwingWorker#execute()}.
+     * @param startPolicy When the task is started and whether it is paused.
+     */
+    private PreprocessingPanel(
+            Supplier<? extends SwingWorker<T, ?>> taskFactory,
+            boolean restartable,
+            Function<? super T, String> resultText,
+            Executor executor,
+            PreprocessingStartPolicy startPolicy
+    ) {
         this.setLayout(new BorderLayout());
         this.setBorder(BorderFactory.createLineBorder(Color.BLACK, 5));
 
-        PreprocessingManager preprocessing = new PreprocessingManager(
+        preprocessing = new PreprocessingManager<>(
                 progressBar,
                 () -> {
                     setUpProgressBarUI();
@@ -165,9 +311,144 @@ public class PreprocessingPanel extends JPanel {
                     setUpPanel(resultPanel, resultLabel, new int[]{3, 1, 3}, new int[]{1, 4, 1});
                     this.add(resultPanel);
                 },
-                task
+                this::appendChunks,
+                taskFactory,
+                restartable,
+                resultText,
+                executor,
+                () -> priority
         );
 
-        preprocessing.startPreprocessing();
+        this.startPolicy = startPolicy;
+        if (restartable && startPolicy.getPauseDelay() >= 0) {
+            pauseTimer = new Timer(startPolicy.getPauseDelay(), e -> {
+                if (!isPointerNear()) preprocessing.pausePreprocessing();
+            });
+            pauseTimer.setRepeats(false);
+        } else {
+            pauseTimer = null;
+        }
+
+        this.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                onPointerMoved();
+            }
+        });
+        if (startPolicy.getStart() == PreprocessingStartPolicy.Start.ON_PROXIMITY) {
+            proximityTimer = new Timer(PROXIMITY_CHECK_INTERVAL, e -> onPointerMoved());
+            hostListener = new MouseInputAdapter() {
+                @Override
+                public void mouseEntered(MouseEvent e) {
+                    onPointerMoved();
+                }
+
+                @Override
+                public void mouseExited(MouseEvent e) {
+                    onPointerMoved();
+                }
+
+                @Override
+                public void mouseMoved(MouseEvent e) {
+                    onPointerMoved();
+                }
+            };
+        } else {
+            proximityTimer = null;
+            hostListener = null;
+        }
+        if (startPolicy.getStart() == PreprocessingStartPolicy.Start.EAGER) {
+            preprocessing.startPreprocessing();
+        }
+    }
+
+    /**
+     * Starts watching the pointer around the host for the proximity prefetch.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (hostListener == null || preprocessing.isFinished()) return;
+        host = SwingUtilities.getAncestorOfClass(MouseFollowAndResizePanel.class, this);
+        if (host != null) {
+            host.addMouseListener(hostListener);
+            host.addMouseMotionListener(hostListener);
+        }
+        proximityTimer.start();
+    }
+
+    /**
+     * Stops watching the pointer, so that a removed panel is not kept by its host or the timer.
+     */
+    @Override
+    public void removeNotify() {
+        stopWatchingPointer();
+        super.removeNotify();
+    }
+
+    /**
+     * Removes the listener from the host and stops the proximity timer.
+     */
+    private void stopWatchingPointer() {
+        if (hostListener == null) return;
+        proximityTimer.stop();
+        if (host != null) {
+            host.removeMouseListener(hostListener);
+            host.removeMouseMotionListener(hostListener);
+            host = null;
+        }
+    }
+
+    /**
+     * Starts or continues the task when the pointer is near, and schedules the pause when it goes away,
+     * including when it leaves the host.
+     */
+    private void onPointerMoved() {
+        if (preprocessing.isFinished()) {
+            stopWatchingPointer();
+            return;
+        }
+        boolean near = isPointerNear();
+        priority = near ? 1 : 0;
+        if (near) {
+            if (pauseTimer != null) {
+                pauseTimer.stop();
+            }
+            if (startPolicy.getStart() != PreprocessingStartPolicy.Start.EAGER || preprocessing.isStarted()) {
+                preprocessing.startPreprocessing();
+            }
+        } else if (pauseTimer != null && preprocessing.isRunning() && !pauseTimer.isRunning()) {
+            pauseTimer.start();
+        }
+    }
+
+    /**
+     * The pointer is near if the panel is showing, which its host allows only while the pointer is over it,
+     * or, for the proximity policy, if the pointer is within the prefetch distance of the host.
+     *
+     * @return Whether the pointer is near.
+     */
+    private boolean isPointerNear() {
+        if (startPolicy.getStart() != PreprocessingStartPolicy.Start.ON_PROXIMITY) return isShowing();
+
+        Component host = SwingUtilities.getAncestorOfClass(MouseFollowAndResizePanel.class, this);
+        if (host == null || !host.isShowing()) return false;
+        // without the pointer location only being over the host can be told
+        if (GraphicsEnvironment.isHeadless()) return isShowing();
+        PointerInfo pointer = MouseInfo.getPointerInfo();
+        if (pointer == null) return isShowing();
+        Point location = pointer.getLocation();
+        SwingUtilities.convertPointFromScreen(location, host);
+
+        long dx = Math.max(0, Math.max(-location.x, location.x - host.getWidth()));
+        long dy = Math.max(0, Math.max(-location.y, location.y - host.getHeight()));
+        long distance = startPolicy.getPrefetchDistance();
+        return dx * dx + dy * dy <= distance * distance;
+    }
+
+    /**
+     * Cancels the preprocessing task.
+     */
+    public void cancel() {
+        preprocessing.cancel();
     }
 }
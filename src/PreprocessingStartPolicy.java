@@ -0,0 +1,79 @@
+/**
+ * Describes when {@link PreprocessingPanel} starts its task and whether it pauses it.
+ * <ul>
+ *     <li>{@link #eager()} starts the task when the panel is created.</li>
+ *     <li>{@link #onVisible()} starts it when the panel is first shown, that is, when the mouse first enters its host.</li>
+ *     <li>{@link #onProximity(int)} also prefetches: starts it when the pointer gets close enough to the host.</li>
+ * </ul>
+ * With {@link #withPauseAfter(int)} a restartable task is paused when the pointer stays away for long enough,
+ * and continues when the pointer comes back.
+ */
+public class PreprocessingStartPolicy {
+    /**
+     * When the task is started.
+     */
+    enum Start {
+        EAGER, ON_VISIBLE, ON_PROXIMITY
+    }
+
+    private final Start start;
+    private final int prefetchDistance;
+    private final int pauseDelay;
+
+    private PreprocessingStartPolicy(Start start, int prefetchDistance, int pauseDelay) {
+        this.start = start;
+        this.prefetchDistance = prefetchDistance;
+        this.pauseDelay = pauseDelay;
+    }
+
+    /**
+     * @return The policy that starts the task immediately and never pauses it.
+     */
+    public static PreprocessingStartPolicy eager() {
+        return new PreprocessingStartPolicy(Start.EAGER, 0, -1);
+    }
+
+    /**
+     * @return The policy that starts the task when the panel is first shown.
+     */
+    public static PreprocessingStartPolicy onVisible() {
+        return new PreprocessingStartPolicy(Start.ON_VISIBLE, 0, -1);
+    }
+
+    /**
+     * @param prefetchDistance The distance in pixels from the host panel at which the task is started.
+     * @return The policy that starts the task when the pointer gets within the distance of the host panel.
+     */
+    public static PreprocessingStartPolicy onProximity(int prefetchDistance) {
+        if (prefetchDistance < 0) {
+            throw new IllegalArgumentException("Prefetch distance must not be negative: " + prefetchDistance);
+        }
+        return new PreprocessingStartPolicy(Start.ON_PROXIMITY, prefetchDistance, -1);
+    }
+
+    /**
+     * @param pauseDelay Time in milliseconds the pointer has to stay away for the task to be paused.
+     * @return The same policy that also pauses the task.
+     */
+    public PreprocessingStartPolicy withPauseAfter(int pauseDelay) {
+        if (pauseDelay < 0) {
+            throw new IllegalArgumentException("Pause delay must not be negative: " + pauseDelay);
+        }
+        return new PreprocessingStartPolicy(start, prefetchDistance, pauseDelay);
+    }
+
+    Start getStart() {
+        return start;
+    }
+
+    int getPrefetchDistance() {
+        return prefetchDistance;
+    }
+
+    /**
+     * @return Time in milliseconds the pointer has to stay away for the task to be paused; negative if never.
+     */
+    int getPauseDelay() {
+        return pauseDelay;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntSupplier;
+
+/**
+ * Bounded pool of platform threads that runs the pending task with the highest priority first.
+ * <p>
+ * Priorities are evaluated when a thread becomes free, not when a task is submitted,
+ * so a task can be promoted while it waits (for example, when its panel comes under the mouse).
+ * The pending tasks are scanned linearly, which is fine for the dozens of tasks a screen has.
+ */
+public class PriorityTaskExecutor implements Executor {
+    /**
+     * A task waiting to be run.
+     */
+    private static class PendingTask {
+        final Runnable task;
+        final IntSupplier priority;
+
+        PendingTask(Runnable task, IntSupplier priority) {
+            this.task = task;
+            this.priority = priority;
+        }
+    }
+
+    private final List<PendingTask> pending = new ArrayList<>();
+
+    /**
+     * Whether {@link #shutdown()} was called; the threads stop once the pending tasks are done.
+     */
+    private boolean shutdown = false;
+
+    /**
+     * Creates the pool and starts its threads. The threads are daemons, so they do not keep the application alive.
+     *
+     * @param threads Number of threads.
+     * @param name    The prefix of the thread names.
+     */
+    PriorityTaskExecutor(int threads, String name) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Runs the task with the lowest priority, 0.
+     *
+     * @param task The task.
+     */
+    @Override
+    public void execute(Runnable task) {
+        execute(task, () -> 0);
+    }
+
+    /**
+     * Runs the task once it has the highest priority among the pending tasks and a thread is free.
+     *
+     * @param task     The task.
+     * @param priority The priority of the task; larger is more urgent. Called on the pool threads,
+     *                 so it must be thread-safe and cheap, for example a read of a volatile field.
+     */
+    public void execute(Runnable task, IntSupplier priority) {
+        synchronized (pending) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The executor is shut down");
+            }
+            pending.add(new PendingTask(task, priority));
+            pending.notify();
+        }
+    }
+
+    /**
+     * Stops the threads once the pending tasks are done; no more tasks can be submitted.
+     */
+    public void shutdown() {
+        synchronized (pending) {
+            shutdown = true;
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * The loop of a pool thread: takes the most urgent task and runs it, until the executor is shut down.
+     * <p>
+     * Interrupts do not stop the thread: tasks are cancelled by interrupting the thread that runs them
+     * ({@code Future.cancel(true)}), and the interrupt may still be pending after the task returns.
+     */
+    private void work() {
+        while (true) {
+            Runnable task;
+            try {
+                task = takeMostUrgent();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (task == null) return;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // a failing task is reported like an uncaught exception, but must not kill the thread
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+            // the interrupt of a cancelled task must not reach the next one
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @return The pending task with the highest priority; on ties the one submitted first.
+     * Null if the executor is shut down and nothing is pending.
+     * @throws InterruptedException If the thread is interrupted while waiting for a task.
+     */
+    private Runnable takeMostUrgent() throws InterruptedException {
+        synchronized (pending) {
+            while (pending.isEmpty()) {
+                if (shutdown) return null;
+                pending.wait();
+            }
+            int best = 0;
+            int bestPriority = pending.get(0).priority.getAsInt();
+            for (int i = 1; i < pending.size(); i++) {
+                int priority = pending.get(i).priority.getAsInt();
+                if (priority > bestPriority) {
+                    best = i;
+                    bestPriority = priority;
+                }
+            }
+            return pending.remove(best).task;
+        }
+    }
+}
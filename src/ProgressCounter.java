@@ -0,0 +1,42 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Counter of processed units that is updated by a single thread and sampled by others.
+ * Adding is a plain load and store without any synchronization or event objects,
+ * so it can be called on every iteration of a tight loop.
+ * The sampled value may lag behind a little, which is fine for displaying progress.
+ */
+public final class ProgressCounter {
+    private static final VarHandle COUNT;
+
+    static {
+        try {
+            COUNT = MethodHandles.lookup().findVarHandle(ProgressCounter.class, "count", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Number of processed units. Accessed in the opaque mode, so the sampling thread eventually sees the updates.
+     */
+    @SuppressWarnings("unused")
+    private long count;
+
+    /**
+     * Adds processed units. Must be called only from the thread that owns the counter.
+     *
+     * @param units Number of processed units.
+     */
+    public void add(long units) {
+        COUNT.setOpaque(this, (long) COUNT.getOpaque(this) + units);
+    }
+
+    /**
+     * @return Number of processed units seen by the calling thread.
+     */
+    public long get() {
+        return (long) COUNT.getOpaque(this);
+    }
+}
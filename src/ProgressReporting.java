@@ -0,0 +1,10 @@
+/**
+ * Task that reports its progress through a {@link ProgressTracker}.
+ * {@link PreprocessingManager} samples the tracker at a fixed rate instead of listening to the progress of the SwingWorker.
+ */
+public interface ProgressReporting {
+    /**
+     * @return The tracker of the task progress.
+     */
+    ProgressTracker getProgressTracker();
+}
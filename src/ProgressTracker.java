@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Progress of a task that consists of one or more weighted stages.
+ * <p>
+ * Workers report progress through {@link ProgressCounter}s obtained from a stage, one per thread,
+ * so reporting never contends and never creates events. The progress is sampled at a fixed rate
+ * (by {@link PreprocessingManager} on the EDT) as a weighted fraction of the stages,
+ * together with an estimate of the remaining time.
+ */
+public class ProgressTracker {
+    /**
+     * The stages of the task in the order they were added.
+     */
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Sum of the weights of all the stages.
+     */
+    private double totalWeight = 0;
+
+    /**
+     * Time of the first sample, in nanoseconds; 0 if the progress has not been sampled yet.
+     */
+    private long startTime = 0;
+
+    /**
+     * Fraction that was already done at the first sample, for example restored from a checkpoint.
+     */
+    private double startFraction = 0;
+
+    /**
+     * Creates a tracker of a task with a single stage.
+     *
+     * @param totalUnits Number of units in the task.
+     * @return The tracker; its only stage is available via {@link #getStage(int)}.
+     */
+    public static ProgressTracker singleStage(long totalUnits) {
+        ProgressTracker tracker = new ProgressTracker();
+        tracker.addStage("", 1, totalUnits);
+        return tracker;
+    }
+
+    /**
+     * Adds a stage. All the stages should be added before the task starts.
+     *
+     * @param name       The name of the stage.
+     * @param weight     The share of the stage in the whole task, relative to other stages.
+     * @param totalUnits Number of units in the stage.
+     * @return The added stage.
+     */
+    public synchronized Stage addStage(String name, double weight, long totalUnits) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Stage weight must not be negative: " + weight);
+        }
+        if (totalUnits < 0) {
+            throw new IllegalArgumentException("Stage size must not be negative: " + totalUnits);
+        }
+        Stage stage = new Stage(name, weight, totalUnits);
+        stages.add(stage);
+        totalWeight += weight;
+        return stage;
+    }
+
+    /**
+     * @param index The index of the stage.
+     * @return The stage with the given index.
+     */
+    public synchronized Stage getStage(int index) {
+        return stages.get(index);
+    }
+
+    /**
+     * @return The weighted fraction of the task that is done, from 0 to 1.
+     */
+    public synchronized double getFraction() {
+        if (totalWeight == 0) return 0;
+        double done = 0;
+        for (Stage stage : stages) {
+            done += stage.weight * stage.getFraction();
+        }
+        return Math.min(1, done / totalWeight);
+    }
+
+    /**
+     * @return Number of processed units in all the stages.
+     */
+    public synchronized long getDoneUnits() {
+        long done = 0;
+        for (Stage stage : stages) {
+            done += stage.getDoneUnits();
+        }
+        return done;
+    }
+
+    /**
+     * Samples the progress and estimates the remaining time assuming the task keeps its average speed so far.
+     * The part that was already done at the first sample does not count towards the speed.
+     *
+     * @param fraction The sampled fraction of the task that is done.
+     * @return The estimated remaining time in milliseconds, or -1 if it cannot be estimated yet.
+     */
+    public synchronized long estimateRemainingMillis(double fraction) {
+        long now = System.nanoTime();
+        if (startTime == 0) {
+            startTime = now;
+            startFraction = fraction;
+            return -1;
+        }
+        double doneSinceStart = fraction - startFraction;
+        if (doneSinceStart <= 0) return -1;
+        double elapsedMillis = (now - startTime) / 1e6;
+        return (long) (elapsedMillis * (1 - fraction) / doneSinceStart);
+    }
+
+    /**
+     * A stage of the task. Its progress is the sum of the counters handed out to the workers.
+     */
+    public static class Stage {
+        private final String name;
+        private final double weight;
+        private final long totalUnits;
+        private final ConcurrentLinkedQueue<ProgressCounter> counters = new ConcurrentLinkedQueue<>();
+
+        private Stage(String name, double weight, long totalUnits) {
+            this.name = name;
+            this.weight = weight;
+            this.totalUnits = totalUnits;
+        }
+
+        /**
+         * Creates a counter for a worker. Every thread should use its own counter.
+         *
+         * @return A new counter that contributes to the progress of the stage.
+         */
+        public ProgressCounter newCounter() {
+            ProgressCounter counter = new ProgressCounter();
+            counters.add(counter);
+            return counter;
+        }
+
+        /**
+         * @return Number of processed units reported by all the counters.
+         */
+        public long getDoneUnits() {
+            long done = 0;
+            for (ProgressCounter counter : counters) {
+                done += counter.get();
+            }
+            return done;
+        }
+
+        /**
+         * @return The fraction of the stage that is done, from 0 to 1; an empty stage counts as done.
+         */
+        public double getFraction() {
+            if (totalUnits == 0) return 1;
+            return Math.min(1, (double) getDoneUnits() / totalUnits);
+        }
+
+        /**
+         * @return The name of the stage.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
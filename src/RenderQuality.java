@@ -0,0 +1,49 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Quality the hosted component should paint with. {@link MouseFollowAndResizePanel} puts it into the client
+ * property {@link #PROPERTY} of its component: {@link #FAST} while the pointer moves, when a frame is on screen
+ * too shortly for the quality to be visible, and {@link #HIGH} once the pointer rests, followed by a repaint.
+ */
+public enum RenderQuality {
+    /**
+     * Nearest-neighbour interpolation, no antialiasing, nothing cached for the current size.
+     */
+    FAST,
+
+    /**
+     * Bilinear interpolation and antialiasing.
+     */
+    HIGH;
+
+    /**
+     * The client property of the hosted component that holds the quality.
+     */
+    public static final String PROPERTY = "renderQuality";
+
+    /**
+     * @param component The component.
+     * @return The quality the component should paint with; {@link #HIGH} if it was not hinted.
+     */
+    public static RenderQuality of(JComponent component) {
+        return component.getClientProperty(PROPERTY) == FAST ? FAST : HIGH;
+    }
+
+    /**
+     * Sets the rendering hints of this quality.
+     *
+     * @param g2d The graphics to paint with.
+     */
+    public void apply(Graphics2D g2d) {
+        if (this == FAST) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        } else {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of preprocessing results, so they do not have to be recomputed on every start.
+ * <p>
+ * The results are stored in a single append-only file that is memory-mapped when accessed.
+ * The file starts with a header followed by records:
+ * <pre>
+ * header: magic (int), version (int)
+ * record: magic (int), key length (int), value length (int), CRC32 of key and value (int),
+ *         last access time (long), key (UTF-8), value
+ * </pre>
+ * The index (key to record) is built by scanning the record headers. A later record with the same key
+ * replaces the earlier one. Reading stops at the first truncated or corrupt record, and the next write goes there,
+ * so a crash during a write loses at most that write. A file with a broken header is started anew.
+ * The file is never shrunk while it is mapped, as some platforms do not allow it.
+ * <p>
+ * Every access holds an exclusive lock on a separate lock file, so several application instances can share the cache.
+ * When the file grows over its bound, it is compacted: the most recently used entries that fit are written
+ * to a temporary file which then atomically replaces the cache file.
+ */
+public class ResultCache {
+    private static final int FILE_MAGIC = 0x47505243;
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_MAGIC = 0x52454331;
+    private static final int RECORD_HEADER_SIZE = 24;
+
+    /**
+     * Offset of the last access time in the record header.
+     */
+    private static final int LAST_ACCESS_OFFSET = 16;
+
+    /**
+     * Default bound of the cache file size, in bytes.
+     */
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Serializes the accesses from this JVM, as file locks are held on behalf of the whole process.
+     */
+    private static final Object PROCESS_LOCK = new Object();
+
+    /**
+     * The cache used by {@link PreprocessingManager}; created lazily.
+     */
+    private static ResultCache defaultCache;
+
+    /**
+     * The cache file.
+     */
+    private final Path file;
+
+    /**
+     * The lock file guarding the cache file.
+     */
+    private final Path lockFile;
+
+    /**
+     * Bound of the cache file size, in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * Creates the cache stored in the given file. The file is created on the first write.
+     *
+     * @param file     The cache file.
+     * @param maxBytes Bound of the cache file size, in bytes.
+     */
+    ResultCache(Path file, long maxBytes) {
+        if (maxBytes <= FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("Cache size is too small: " + maxBytes);
+        }
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The cache in the user's home directory used by default.
+     */
+    public static synchronized ResultCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new ResultCache(
+                    Paths.get(System.getProperty("user.home"), ".preprocessing-cache", "results.bin"),
+                    DEFAULT_MAX_BYTES
+            );
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Replaces the cache used by default.
+     *
+     * @param cache The new default cache.
+     */
+    public static synchronized void setDefault(ResultCache cache) {
+        defaultCache = cache;
+    }
+
+    /**
+     * Looks the key up and marks the entry as recently used.
+     *
+     * @param key The key.
+     * @return The stored value, or null if there is none.
+     * @throws IOException If the cache file cannot be accessed.
+     */
+    public byte[] get(String key) throws IOException {
+        synchronized (PROCESS_LOCK) {
+            if (!Files.exists(file)) return null;
+            try (FileChannel lockChannel = openLockChannel()) {
+                FileLock lock = lockChannel.lock();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    if (!checkHeader(channel)) return null;
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                    Record record = readIndex(buffer).records.get(key);
+                    if (record == null) return null;
+
+                    buffer.putLong(record.offset + LAST_ACCESS_OFFSET, System.currentTimeMillis());
+                    byte[] value = new byte[record.valueLength];
+                    buffer.get(record.offset + RECORD_HEADER_SIZE + record.keyLength, value);
+                    return value;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the value, replacing the previous one for the same key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @throws IOException If the cache file cannot be accessed.
+     */
+    public void put(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long recordSize = (long) RECORD_HEADER_SIZE + keyBytes.length + value.length;
+        if (FILE_HEADER_SIZE + recordSize > maxBytes) return;
+
+        synchronized (PROCESS_LOCK) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel lockChannel = openLockChannel()) {
+                FileLock lock = lockChannel.lock();
+                try (FileChannel channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    checkHeader(channel);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                    Index index = readIndex(buffer);
+
+                    // the record goes over the corrupt tail, if there is one
+                    long end = index.end;
+                    if (end + recordSize <= maxBytes) {
+                        channel.write(encodeRecord(keyBytes, value, System.currentTimeMillis()), end);
+                        if (end + recordSize + 4 <= channel.size()) {
+                            // ends the scan before the rest of the tail
+                            channel.write(ByteBuffer.allocate(4), end + recordSize);
+                        }
+                        channel.force(false);
+                        return;
+                    }
+                    index.records.remove(key);
+                    compact(buffer, index.records, keyBytes, value);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The channel of the lock file, created if needed.
+     * @throws IOException If the lock file cannot be opened.
+     */
+    private FileChannel openLockChannel() throws IOException {
+        Files.createDirectories(lockFile.toAbsolutePath().getParent());
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Checks the header of the cache file with a plain read, before the file is mapped.
+     * If the file is empty or its header is broken, the file is dropped and a new header is written.
+     *
+     * @param channel The channel of the cache file, opened for reading and writing.
+     * @return Whether the header was valid, that is, whether the file may contain records.
+     * @throws IOException If the file cannot be read or rewritten.
+     */
+    private static boolean checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) break;
+        }
+        if (!header.hasRemaining() && header.getInt(0) == FILE_MAGIC && header.getInt(4) == FILE_VERSION) {
+            return true;
+        }
+        channel.truncate(0);
+        header.clear();
+        header.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+        channel.write(header, 0);
+        return false;
+    }
+
+    /**
+     * Scans the records after the header and builds the index. Stops at the first truncated or corrupt record;
+     * the file is not cut there, as it is mapped.
+     *
+     * @param buffer The mapping of the whole file, whose header has been checked.
+     * @return The latest record for every key and the end of the valid records.
+     */
+    private static Index readIndex(MappedByteBuffer buffer) {
+        Index index = new Index();
+        int size = buffer.limit();
+        int offset = FILE_HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            int keyLength = buffer.getInt(offset + 4);
+            int valueLength = buffer.getInt(offset + 8);
+            if (buffer.getInt(offset) != RECORD_MAGIC || keyLength < 0 || valueLength < 0
+                    || (long) offset + RECORD_HEADER_SIZE + keyLength + valueLength > size) {
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(offset + RECORD_HEADER_SIZE, keyBytes);
+            CRC32 crc = new CRC32();
+            crc.update(keyBytes);
+            crc.update(buffer.slice(offset + RECORD_HEADER_SIZE + keyLength, valueLength));
+            if ((int) crc.getValue() != buffer.getInt(offset + 12)) break;
+
+            long lastAccess = buffer.getLong(offset + LAST_ACCESS_OFFSET);
+            index.records.put(new String(keyBytes, StandardCharsets.UTF_8),
+                    new Record(offset, keyLength, valueLength, lastAccess));
+            offset += RECORD_HEADER_SIZE + keyLength + valueLength;
+        }
+        index.end = offset;
+        return index;
+    }
+
+    /**
+     * Rewrites the cache file with the new entry and the most recently used entries that fit,
+     * replacing the file atomically.
+     *
+     * @param buffer   The mapping of the current file.
+     * @param index    The index of the current file without the new key.
+     * @param keyBytes The key of the new entry.
+     * @param value    The value of the new entry.
+     * @throws IOException If the file cannot be rewritten.
+     */
+    private void compact(MappedByteBuffer buffer, Map<String, Record> index, byte[] keyBytes, byte[] value)
+            throws IOException {
+        List<Record> records = new ArrayList<>(index.values());
+        records.sort((a, b) -> Long.compare(b.lastAccess, a.lastAccess));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+            output.write(header);
+            output.write(encodeRecord(keyBytes, value, System.currentTimeMillis()));
+            long written = FILE_HEADER_SIZE + RECORD_HEADER_SIZE + keyBytes.length + value.length;
+
+            for (Record record : records) {
+                int length = RECORD_HEADER_SIZE + record.keyLength + record.valueLength;
+                if (written + length > maxBytes) continue;
+                output.write(buffer.slice(record.offset, length));
+                written += length;
+            }
+            output.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param keyBytes   The key.
+     * @param value      The value.
+     * @param lastAccess The last access time.
+     * @return The encoded record ready to be written.
+     */
+    private static ByteBuffer encodeRecord(byte[] keyBytes, byte[] value, long lastAccess) {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(value);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + value.length);
+        record.putInt(RECORD_MAGIC)
+                .putInt(keyBytes.length)
+                .putInt(value.length)
+                .putInt((int) crc.getValue())
+                .putLong(lastAccess)
+                .put(keyBytes)
+                .put(value)
+                .flip();
+        return record;
+    }
+
+    /**
+     * The result of scanning the cache file.
+     */
+    private static class Index {
+        /**
+         * The latest record for every key.
+         */
+        final Map<String, Record> records = new HashMap<>();
+
+        /**
+         * Offset right after the last valid record; new records are written there.
+         */
+        int end;
+    }
+
+    /**
+     * Position of a record in the cache file.
+     */
+    private static class Record {
+        final int offset;
+        final int keyLength;
+        final int valueLength;
+        final long lastAccess;
+
+        Record(int offset, int keyLength, int valueLength, long lastAccess) {
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Panel that draws an image stretched to its size.
+ * The source image is converted once to an image compatible with the current {@link GraphicsConfiguration},
+ * and a mipmap pyramid (each level is half the size of the previous one) is built from it.
+ * Every size is drawn from the nearest level that is not smaller than it,
+ * and the recently used exact sizes are kept in a bounded LRU cache.
+ * When the {@link RenderQuality} hint is fast, the nearest level is drawn scaled with nearest-neighbour
+ * interpolation instead, without building an image of the exact size.
+ */
+public class ScaledImagePanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default bound of the memory used by the cache of exact sizes, in bytes.
+     */
+    static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The image as it was passed.
+     */
+    private final BufferedImage source;
+
+    /**
+     * How many times the image can be smaller than the source; levels smaller than that are not built.
+     * For the follow panel it is the initial scaling factor, as sizes never go below d0 / b.
+     */
+    private final int minimumScale;
+
+    /**
+     * Maximal number of bytes the cache of exact sizes may use.
+     */
+    private final long maxCacheBytes;
+
+    /**
+     * Configuration the pyramid was built for; the pyramid is rebuilt when it changes.
+     */
+    private GraphicsConfiguration pyramidConfiguration;
+
+    /**
+     * Mipmap levels, from the full resolution down.
+     */
+    private final List<BufferedImage> levels = new ArrayList<>();
+
+    /**
+     * Recently used exact sizes in access order. The key is the width in the high half and the height in the low half.
+     */
+    private final LinkedHashMap<Long, BufferedImage> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of bytes currently used by the cache.
+     */
+    private long cacheBytes = 0;
+
+    /**
+     * Creates the panel with the default cache bound.
+     *
+     * @param source       The image to draw.
+     * @param minimumScale How many times the drawn image can be smaller than the source.
+     */
+    ScaledImagePanel(BufferedImage source, int minimumScale) {
+        this(source, minimumScale, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Creates the panel.
+     *
+     * @param source        The image to draw.
+     * @param minimumScale  How many times the drawn image can be smaller than the source.
+     * @param maxCacheBytes Maximal number of bytes the cache of exact sizes may use; 0 disables the cache.
+     */
+    ScaledImagePanel(BufferedImage source, int minimumScale, long maxCacheBytes) {
+        if (minimumScale < 1) {
+            throw new IllegalArgumentException("Minimum scale must be positive: " + minimumScale);
+        }
+        if (maxCacheBytes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxCacheBytes);
+        }
+        this.source = source;
+        this.minimumScale = minimumScale;
+        this.maxCacheBytes = maxCacheBytes;
+        // the panel has no children, and a layout manager would only allocate insets on every resize
+        setLayout(null);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        Graphics2D g2d = (Graphics2D) g;
+        ensurePyramid(g2d.getDeviceConfiguration());
+        if (RenderQuality.of(this) == RenderQuality.FAST) {
+            // the size changes every frame while the pointer moves, so exact sizes are neither built nor cached
+            RenderQuality.FAST.apply(g2d);
+            g2d.drawImage(getNearestLevel(width, height), 0, 0, width, height, this);
+            return;
+        }
+        g2d.drawImage(getScaledImage(width, height), 0, 0, this);
+    }
+
+    /**
+     * Returns the image of exactly the requested size, taking it from the cache if possible.
+     *
+     * @param width  The requested width.
+     * @param height The requested height.
+     * @return The image of the requested size.
+     */
+    private BufferedImage getScaledImage(int width, int height) {
+        BufferedImage level = getNearestLevel(width, height);
+        if (level.getWidth() == width && level.getHeight() == height) return level;
+
+        long key = ((long) width << 32) | height;
+        BufferedImage cached = cache.get(key);
+        if (cached != null) return cached;
+
+        BufferedImage scaled = scale(level, width, height);
+        long bytes = getBytes(scaled);
+        if (bytes <= maxCacheBytes) {
+            cache.put(key, scaled);
+            cacheBytes += bytes;
+            evictToLimit();
+        }
+        return scaled;
+    }
+
+    /**
+     * @param width  The requested width.
+     * @param height The requested height.
+     * @return The smallest level that is not smaller than the requested size, or the full resolution if there is none.
+     */
+    private BufferedImage getNearestLevel(int width, int height) {
+        for (int i = levels.size() - 1; i > 0; i--) {
+            BufferedImage level = levels.get(i);
+            if (level.getWidth() >= width && level.getHeight() >= height) return level;
+        }
+        return levels.get(0);
+    }
+
+    /**
+     * Removes the least recently used sizes until the cache fits into its bound.
+     */
+    private void evictToLimit() {
+        Iterator<Map.Entry<Long, BufferedImage>> iterator = cache.entrySet().iterator();
+        while (cacheBytes > maxCacheBytes && iterator.hasNext()) {
+            cacheBytes -= getBytes(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Converts the source to the given configuration and builds the mipmap pyramid,
+     * unless it was already built for it.
+     *
+     * @param configuration The configuration of the device the panel is drawn on.
+     */
+    private void ensurePyramid(GraphicsConfiguration configuration) {
+        if (configuration == pyramidConfiguration && !levels.isEmpty()) return;
+        pyramidConfiguration = configuration;
+        levels.clear();
+        cache.clear();
+        cacheBytes = 0;
+
+        BufferedImage level = createCompatibleImage(source.getWidth(), source.getHeight());
+        Graphics2D g2d = level.createGraphics();
+        g2d.drawImage(source, 0, 0, null);
+        g2d.dispose();
+        levels.add(level);
+
+        int minWidth = Math.max(1, source.getWidth() / minimumScale);
+        int minHeight = Math.max(1, source.getHeight() / minimumScale);
+        // the next level is only needed if it is still not smaller than the smallest drawn size
+        while (level.getWidth() / 2 >= minWidth && level.getHeight() / 2 >= minHeight) {
+            level = scale(level, level.getWidth() / 2, level.getHeight() / 2);
+            levels.add(level);
+        }
+    }
+
+    /**
+     * Scales the image with bilinear interpolation into a new compatible image.
+     *
+     * @param image  The image to scale.
+     * @param width  The target width.
+     * @param height The target height.
+     * @return The scaled image.
+     */
+    private BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaled = createCompatibleImage(width, height);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    /**
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return An image compatible with the current configuration, or a plain ARGB image if there is none (headless).
+     */
+    private BufferedImage createCompatibleImage(int width, int height) {
+        if (pyramidConfiguration == null) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return pyramidConfiguration.createCompatibleImage(width, height, source.getTransparency());
+    }
+
+    /**
+     * @param image The image.
+     * @return Approximate number of bytes the image uses.
+     */
+    private static long getBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, image.getColorModel().getPixelSize() / 8);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Response curve of the follow panel: how big the component is at a given distance from the entrance side.
+ * <p>
+ * Curves are not evaluated per mouse event: {@link MouseFollowAndResizePanel} compiles them into
+ * a {@link SizeLookupTable} for every distance within the panel, so a curve may be as expensive as it likes.
+ * The curves below all start at originalD / b and grow up to originalD.
+ */
+@FunctionalInterface
+public interface ScalingCurve {
+    /**
+     * @param original       Original dimension of the component.
+     * @param distanceToSide Distance from the mouse to the side of the panel it entered from.
+     * @return The dimension of the component at this distance.
+     */
+    int getDimension(int original, int distanceToSide);
+
+    /**
+     * The original formula: currentD = min(originalD / b + k * distance * originalD, originalD).
+     *
+     * @param initialScale  The initial scaling factor b.
+     * @param scalingFactor The scaling factor k.
+     * @return The linear curve.
+     */
+    static ScalingCurve linear(int initialScale, double scalingFactor) {
+        checkInitialScale(initialScale);
+        return (original, distance) -> Math.min(
+                original / initialScale + (int) ((distance * scalingFactor) * original),
+                original
+        );
+    }
+
+    /**
+     * Quadratic ease-in: the component grows slowly near the entrance side and faster further in.
+     *
+     * @param initialScale The initial scaling factor b.
+     * @param fullDistance Distance at which the component reaches its original size.
+     * @return The ease-in curve.
+     */
+    static ScalingCurve easeIn(int initialScale, int fullDistance) {
+        checkInitialScale(initialScale);
+        checkDistance(fullDistance);
+        return (original, distance) -> {
+            double t = Math.min(1.0, (double) distance / fullDistance);
+            return interpolate(original, initialScale, t * t);
+        };
+    }
+
+    /**
+     * Logarithmic: the component grows fast near the entrance side and slows down further in.
+     *
+     * @param initialScale The initial scaling factor b.
+     * @param fullDistance Distance at which the component reaches its original size.
+     * @return The logarithmic curve.
+     */
+    static ScalingCurve logarithmic(int initialScale, int fullDistance) {
+        checkInitialScale(initialScale);
+        checkDistance(fullDistance);
+        double norm = Math.log1p(fullDistance);
+        return (original, distance) -> interpolate(
+                original, initialScale, Math.min(1.0, Math.log1p(distance) / norm)
+        );
+    }
+
+    /**
+     * Stepped: the size changes only every stepDistance pixels, following the given curve.
+     *
+     * @param curve        The curve to follow.
+     * @param stepDistance Length of a step in pixels.
+     * @return The stepped curve.
+     */
+    static ScalingCurve stepped(ScalingCurve curve, int stepDistance) {
+        checkDistance(stepDistance);
+        return (original, distance) -> curve.getDimension(original, distance - distance % stepDistance);
+    }
+
+    /**
+     * @param original     Original dimension.
+     * @param initialScale The initial scaling factor b.
+     * @param fraction     How far the dimension is between originalD / b (0) and originalD (1).
+     * @return The dimension.
+     */
+    private static int interpolate(int original, int initialScale, double fraction) {
+        int minimal = original / initialScale;
+        return minimal + (int) ((original - minimal) * fraction);
+    }
+
+    private static void checkInitialScale(int initialScale) {
+        if (initialScale < 1) {
+            throw new IllegalArgumentException("Initial scale must be positive: " + initialScale);
+        }
+    }
+
+    private static void checkDistance(int distance) {
+        if (distance <= 0) {
+            throw new IllegalArgumentException("Distance must be positive: " + distance);
+        }
+    }
+}
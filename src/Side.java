@@ -0,0 +1,6 @@
+/**
+ * Enum that represents the four sides that the panel has.
+ */
+enum Side {
+    TOP, RIGHT, BOTTOM, LEFT
+}
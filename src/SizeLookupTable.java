@@ -0,0 +1,59 @@
+import java.awt.*;
+
+/**
+ * Component sizes precomputed from the {@link ScalingCurve}s for every distance within a panel,
+ * so that a mouse event costs one array read per axis.
+ * Distances beyond the table (the mouse outside the panel) get the size at the largest distance.
+ */
+class SizeLookupTable {
+    /**
+     * Widths of the component by distance.
+     */
+    private int[] widths = new int[0];
+
+    /**
+     * Heights of the component by distance.
+     */
+    private int[] heights = new int[0];
+
+    /**
+     * Number of distances in the table.
+     */
+    private int length = 0;
+
+    /**
+     * Recomputes the table, reusing the arrays if they are large enough.
+     *
+     * @param horizontal   The curve of the width.
+     * @param vertical     The curve of the height.
+     * @param originalSize The original size of the component.
+     * @param maxDistance  The largest distance from a side within the panel.
+     */
+    void rebuild(ScalingCurve horizontal, ScalingCurve vertical, Dimension originalSize, int maxDistance) {
+        length = Math.max(0, maxDistance) + 1;
+        if (widths.length < length) {
+            widths = new int[length];
+            heights = new int[length];
+        }
+        for (int distance = 0; distance < length; distance++) {
+            widths[distance] = horizontal.getDimension(originalSize.width, distance);
+            heights[distance] = vertical.getDimension(originalSize.height, distance);
+        }
+    }
+
+    /**
+     * @param distance The distance from the mouse to the entrance side; must not be negative.
+     * @return The width of the component.
+     */
+    int getWidth(int distance) {
+        return widths[Math.min(distance, length - 1)];
+    }
+
+    /**
+     * @param distance The distance from the mouse to the entrance side; must not be negative.
+     * @return The height of the component.
+     */
+    int getHeight(int distance) {
+        return heights[Math.min(distance, length - 1)];
+    }
+}
@@ -0,0 +1,280 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Panel that hosts a heavy component and avoids laying it out and painting it while it is being resized.
+ * <p>
+ * The component is rendered offscreen at a few size buckets between originalD / b and originalD.
+ * While the panel keeps changing its size, the nearest snapshot is drawn scaled to the current size instead,
+ * with the interpolation of the {@link RenderQuality} hint.
+ * The live component is laid out and painted only after the size has not changed for a while.
+ * <p>
+ * The snapshots are dropped when the component reports a change: a property change,
+ * a child being added or removed, a repaint of a descendant, or an explicit call to {@link #invalidateSnapshots()}.
+ * The panel is a painting origin, like {@link JLayer}, so the repaints of the descendants go through it
+ * instead of painting the live component over the snapshot.
+ */
+public class SnapshotPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default number of size buckets.
+     */
+    static final int DEFAULT_BUCKET_COUNT = 4;
+
+    /**
+     * Default time in milliseconds the size has to stay the same for the live component to be shown.
+     */
+    static final int DEFAULT_REST_DELAY = 150;
+
+    /**
+     * The hosted component.
+     */
+    private final Component target;
+
+    /**
+     * The size of the largest bucket.
+     */
+    private final Dimension originalSize;
+
+    /**
+     * The size of the smallest bucket.
+     */
+    private final Dimension minimalSize;
+
+    /**
+     * Snapshots of the component; index i is rendered at the size of bucket i, null if it is not rendered yet.
+     */
+    private final BufferedImage[] snapshots;
+
+    /**
+     * Timer that shows the live component once the size stops changing.
+     */
+    private final Timer restTimer;
+
+    /**
+     * Whether the live component is shown instead of a snapshot.
+     */
+    private boolean live = false;
+
+    /**
+     * Whether a snapshot is being rendered; changes reported by the component during rendering are ignored.
+     */
+    private boolean rendering = false;
+
+    /**
+     * Whether the panel itself asked to be repainted since the last repaint it originated;
+     * a repaint it did not ask for comes from a descendant.
+     */
+    private volatile boolean repaintRequested = false;
+
+    /**
+     * Creates the panel with the default number of buckets and rest delay.
+     *
+     * @param target       The component to host.
+     * @param originalSize The original size of the component.
+     * @param minimumScale How many times the panel can be smaller than the original size.
+     */
+    SnapshotPanel(Component target, Dimension originalSize, int minimumScale) {
+        this(target, originalSize, minimumScale, DEFAULT_BUCKET_COUNT, DEFAULT_REST_DELAY);
+    }
+
+    /**
+     * Creates the panel.
+     *
+     * @param target       The component to host.
+     * @param originalSize The original size of the component.
+     * @param minimumScale How many times the panel can be smaller than the original size.
+     * @param bucketCount  Number of sizes the snapshots are rendered at.
+     * @param restDelay    Time in milliseconds the size has to stay the same for the live component to be shown.
+     */
+    SnapshotPanel(Component target, Dimension originalSize, int minimumScale, int bucketCount, int restDelay) {
+        if (bucketCount < 1) {
+            throw new IllegalArgumentException("Bucket count must be positive: " + bucketCount);
+        }
+        this.setLayout(null);
+        this.target = target;
+        this.originalSize = originalSize;
+        this.minimalSize = new Dimension(
+                Math.max(1, originalSize.width / minimumScale),
+                Math.max(1, originalSize.height / minimumScale)
+        );
+        this.snapshots = new BufferedImage[bucketCount];
+        this.add(target);
+
+        restTimer = new Timer(restDelay, e -> showLive());
+        restTimer.setRepeats(false);
+
+        target.addPropertyChangeListener(e -> onTargetChanged());
+        if (target instanceof Container) {
+            ((Container) target).addContainerListener(new ContainerListener() {
+                @Override
+                public void componentAdded(ContainerEvent e) {
+                    onTargetChanged();
+                }
+
+                @Override
+                public void componentRemoved(ContainerEvent e) {
+                    onTargetChanged();
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all the snapshots, so they are rendered again from the current state of the component.
+     */
+    public void invalidateSnapshots() {
+        Arrays.fill(snapshots, null);
+        if (!live) repaint();
+    }
+
+    /**
+     * Handles a change reported by the component.
+     */
+    private void onTargetChanged() {
+        if (!rendering) invalidateSnapshots();
+    }
+
+    /**
+     * @return True, so that the repaints of the descendants are painted by the panel and can be told from its own.
+     */
+    @Override
+    public boolean isPaintingOrigin() {
+        return true;
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        repaintRequested = true;
+        super.repaint(tm, x, y, width, height);
+    }
+
+    /**
+     * Paints a repaint of the panel or, as it is a painting origin, of one of its descendants.
+     * A descendant repaint means the component has changed, so the snapshots are dropped
+     * and the whole panel is painted, as the new snapshot differs outside the repainted region too.
+     */
+    @Override
+    public void paintImmediately(int x, int y, int width, int height) {
+        boolean requested = repaintRequested;
+        repaintRequested = false;
+        if (requested || rendering) {
+            super.paintImmediately(x, y, width, height);
+            return;
+        }
+        Arrays.fill(snapshots, null);
+        if (live) {
+            super.paintImmediately(x, y, width, height);
+        } else {
+            super.paintImmediately(0, 0, getWidth(), getHeight());
+        }
+    }
+
+    /**
+     * Switches to the snapshots whenever the size changes and restarts the rest timer.
+     */
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        if (width != getWidth() || height != getHeight()) {
+            live = false;
+            restTimer.restart();
+        }
+        super.setBounds(x, y, width, height);
+    }
+
+    /**
+     * Shows the live component: lays it out at the current size and repaints it.
+     */
+    private void showLive() {
+        live = true;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Lays out the component only if it is shown live.
+     */
+    @Override
+    public void doLayout() {
+        if (live) {
+            target.setBounds(0, 0, getWidth(), getHeight());
+        }
+    }
+
+    @Override
+    protected void paintChildren(Graphics g) {
+        if (live) {
+            super.paintChildren(g);
+            return;
+        }
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        BufferedImage snapshot = getSnapshot(getBucket(width, height));
+        Graphics2D g2d = (Graphics2D) g;
+        RenderQuality.of(this).apply(g2d);
+        g2d.drawImage(snapshot, 0, 0, width, height, null);
+    }
+
+    /**
+     * @param width  The current width.
+     * @param height The current height.
+     * @return The index of the smallest bucket that is not smaller than the given size, or the largest bucket.
+     */
+    private int getBucket(int width, int height) {
+        for (int i = 0; i < snapshots.length - 1; i++) {
+            if (getBucketDimension(minimalSize.width, originalSize.width, i) >= width
+                    && getBucketDimension(minimalSize.height, originalSize.height, i) >= height) {
+                return i;
+            }
+        }
+        return snapshots.length - 1;
+    }
+
+    /**
+     * @param minimal  The dimension of the smallest bucket.
+     * @param original The dimension of the largest bucket.
+     * @param bucket   The index of the bucket.
+     * @return The dimension of the bucket; buckets are evenly spread between the smallest and the largest one.
+     */
+    private int getBucketDimension(int minimal, int original, int bucket) {
+        if (snapshots.length == 1) return original;
+        return minimal + (original - minimal) * bucket / (snapshots.length - 1);
+    }
+
+    /**
+     * Returns the snapshot of the bucket, rendering it if needed.
+     *
+     * @param bucket The index of the bucket.
+     * @return The snapshot of the component at the size of the bucket.
+     */
+    private BufferedImage getSnapshot(int bucket) {
+        if (snapshots[bucket] != null) return snapshots[bucket];
+
+        int width = getBucketDimension(minimalSize.width, originalSize.width, bucket);
+        int height = getBucketDimension(minimalSize.height, originalSize.height, bucket);
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        BufferedImage snapshot = configuration != null
+                ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        rendering = true;
+        try {
+            target.setBounds(0, 0, width, height);
+            target.validate();
+            Graphics2D g2d = snapshot.createGraphics();
+            target.paint(g2d);
+            g2d.dispose();
+        } finally {
+            rendering = false;
+        }
+        snapshots[bucket] = snapshot;
+        return snapshot;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Preprocessing task over the range [0, size) that can be split into independent parts.
+ * The parts are computed in parallel and their results are combined pairwise,
+ * so {@link #combine(Object, Object)} must be associative.
+ *
+ * @param <T> The type of the result.
+ */
+public interface SplittableTask<T> {
+    /**
+     * @return The size of the range the task is computed over.
+     */
+    long size();
+
+    /**
+     * Computes the result for the part [from, to) of the range.
+     * Every processed unit of the range should be added to the progress;
+     * adding is cheap enough to be done on every iteration.
+     *
+     * @param from     The start of the part, inclusive.
+     * @param to       The end of the part, exclusive.
+     * @param progress The counter of processed units owned by the thread computing this part.
+     * @return The result for the part.
+     */
+    T compute(long from, long to, ProgressCounter progress);
+
+    /**
+     * Combines the results of two adjacent parts.
+     *
+     * @param left  The result of the left part.
+     * @param right The result of the right part.
+     * @return The result of both parts.
+     */
+    T combine(T left, T right);
+}
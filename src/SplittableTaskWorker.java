@@ -0,0 +1,292 @@
+import javax.swing.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * SwingWorker that computes a {@link SplittableTask} on a {@link ForkJoinPool}.
+ * The range is split into parts that are small enough for every worker of the pool to get several of them.
+ * Every part reports the progress into its own {@link ProgressCounter} of a single-stage {@link ProgressTracker},
+ * which {@link PreprocessingManager} samples.
+ * If the task is a {@link CacheableTask}, its result is cached as well.
+ * <p>
+ * Workers created with the same {@link PartialResult} share the results of the finished parts,
+ * so a worker that replaces a cancelled one computes only the parts that were not finished.
+ * If the task is a {@link CacheableTask}, the finished parts are also checkpointed with its serialization,
+ * so the next start of the application continues from them too.
+ *
+ * @param <T> The type of the result.
+ */
+public class SplittableTaskWorker<T> extends SwingWorker<T, Void>
+        implements ProgressReporting, CacheableTask<T>, CheckpointableTask {
+    /**
+     * Number of parts per worker of the pool; more parts balance the load better.
+     */
+    private static final int PARTS_PER_WORKER = 8;
+
+    /**
+     * The computed task.
+     */
+    private final SplittableTask<T> task;
+
+    /**
+     * The pool the task is computed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Progress of the task; the parts add counters to its only stage.
+     */
+    private final ProgressTracker progress;
+
+    /**
+     * Results of the finished parts, shared by the workers resuming each other.
+     */
+    private final PartialResult<T> partialResult;
+
+    /**
+     * Counter of the units of the parts that were already finished when this worker got them.
+     * Updated only while holding the lock of the partial result.
+     */
+    private final ProgressCounter reusedProgress;
+
+    /**
+     * Starts of the parts counted by {@link #reusedProgress}.
+     */
+    private final Set<Long> reusedParts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Results of the finished parts of a task, keyed by the start of the part.
+     * The grain size is fixed by the first worker (or the restored checkpoint),
+     * so the parts are the same for every worker of the task and the results can be reused.
+     *
+     * @param <T> The type of the result.
+     */
+    static class PartialResult<T> {
+        private final ConcurrentHashMap<Long, FinishedPart<T>> parts = new ConcurrentHashMap<>();
+
+        /**
+         * Parts are not split further once they are not larger than this; 0 until it is fixed.
+         */
+        private volatile long grainSize = 0;
+    }
+
+    /**
+     * The end and the result of a finished part.
+     *
+     * @param <T> The type of the result.
+     */
+    private static class FinishedPart<T> {
+        final long to;
+        final T result;
+
+        FinishedPart(long to, T result) {
+            this.to = to;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Creates the worker that computes the task on the common pool.
+     *
+     * @param task The task to compute.
+     */
+    SplittableTaskWorker(SplittableTask<T> task) {
+        this(task, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates the worker.
+     *
+     * @param task The task to compute.
+     * @param pool The pool to compute the task on.
+     */
+    SplittableTaskWorker(SplittableTask<T> task, ForkJoinPool pool) {
+        this(task, pool, new PartialResult<>());
+    }
+
+    /**
+     * Creates the worker that reuses the parts already finished by the previous workers of the task.
+     *
+     * @param task          The task to compute.
+     * @param pool          The pool to compute the task on.
+     * @param partialResult The results of the finished parts, shared with the previous workers.
+     */
+    SplittableTaskWorker(SplittableTask<T> task, ForkJoinPool pool, PartialResult<T> partialResult) {
+        this.task = task;
+        this.pool = pool;
+        this.partialResult = partialResult;
+        this.progress = ProgressTracker.singleStage(task.size());
+        this.reusedProgress = progress.getStage(0).newCounter();
+        synchronized (partialResult) {
+            if (partialResult.grainSize == 0) {
+                partialResult.grainSize = Math.max(1, task.size() / ((long) pool.getParallelism() * PARTS_PER_WORKER));
+            }
+            countReusedParts();
+        }
+    }
+
+    /**
+     * Counts the parts finished before this worker started, so that the progress starts from them.
+     */
+    private void countReusedParts() {
+        for (Map.Entry<Long, FinishedPart<T>> part : partialResult.parts.entrySet()) {
+            if (reusedParts.add(part.getKey())) {
+                reusedProgress.add(part.getValue().to - part.getKey());
+            }
+        }
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        ForkJoinTask<T> root = pool.submit(new Part(0, task.size()));
+        try {
+            return root.get();
+        } catch (InterruptedException e) {
+            // the worker was cancelled; stop the parts that have not started yet
+            root.cancel(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progress;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return task instanceof CacheableTask ? ((CacheableTask<?>) task).getCacheKey() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serializeResult(T result) {
+        return ((CacheableTask<T>) task).serializeResult(result);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserializeResult(byte[] bytes) throws IOException {
+        return ((CacheableTask<T>) task).deserializeResult(bytes);
+    }
+
+    @Override
+    public String getCheckpointKey() {
+        return getCacheKey();
+    }
+
+    /**
+     * The state is the size of the task, the grain size and the finished parts with their serialized results.
+     */
+    @Override
+    public byte[] saveCheckpoint() {
+        List<Map.Entry<Long, FinishedPart<T>>> parts = new ArrayList<>(partialResult.parts.entrySet());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(task.size());
+            output.writeLong(partialResult.grainSize);
+            output.writeInt(parts.size());
+            for (Map.Entry<Long, FinishedPart<T>> part : parts) {
+                byte[] result = serializeResult(part.getValue().result);
+                output.writeLong(part.getKey());
+                output.writeLong(part.getValue().to);
+                output.writeInt(result.length);
+                output.write(result);
+            }
+        } catch (IOException e) {
+            // writing into memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the finished parts, unless the workers of this task have already finished some in this run.
+     */
+    @Override
+    public void restoreCheckpoint(byte[] state) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(state));
+        long size = input.readLong();
+        long grainSize = input.readLong();
+        if (size != task.size() || grainSize <= 0) {
+            throw new IOException("The checkpoint is of a different task");
+        }
+        int count = input.readInt();
+        Map<Long, FinishedPart<T>> parts = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            long from = input.readLong();
+            long to = input.readLong();
+            int length = input.readInt();
+            if (from < 0 || to <= from || to > size || length < 0 || length > input.available()) {
+                throw new IOException("Corrupt part in the checkpoint: [" + from + ", " + to + ")");
+            }
+            byte[] result = new byte[length];
+            input.readFully(result);
+            parts.put(from, new FinishedPart<>(to, deserializeResult(result)));
+        }
+
+        synchronized (partialResult) {
+            if (!partialResult.parts.isEmpty()) return;
+            partialResult.grainSize = grainSize;
+            partialResult.parts.putAll(parts);
+            countReusedParts();
+        }
+    }
+
+    /**
+     * A part of the range that is either split in two or computed directly.
+     */
+    private class Part extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        Part(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute() {
+            // cancelling the worker stops the parts that have not been computed yet
+            if (SplittableTaskWorker.this.isCancelled()) {
+                throw new CancellationException();
+            }
+            if (to - from <= partialResult.grainSize) {
+                FinishedPart<T> finished = partialResult.parts.get(from);
+                if (finished != null && finished.to == to) {
+                    // finished by a cancelled worker after this one was created
+                    if (!reusedParts.contains(from)) {
+                        progress.getStage(0).newCounter().add(to - from);
+                    }
+                    return finished.result;
+                }
+                T result = task.compute(from, to, progress.getStage(0).newCounter());
+                if (result != null) {
+                    partialResult.parts.put(from, new FinishedPart<>(to, result));
+                }
+                return result;
+            }
+            long middle = from + (to - from) / 2;
+            Part left = new Part(from, middle);
+            Part right = new Part(middle, to);
+            left.fork();
+            T rightResult = right.compute();
+            return task.combine(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Preprocessing that consists of several stages with dependencies between them (for example, load, parse,
+ * index and render), run as one SwingWorker, so it can be passed to {@link PreprocessingManager} like any other task.
+ * <p>
+ * Stages are added with the stages they depend on, which have to be added before, so the stages form a DAG.
+ * A stage starts on the executor as soon as all its dependencies are done, so independent stages run concurrently,
+ * and reads their outputs through its {@link Context}. Every stage is a weighted stage of the {@link ProgressTracker},
+ * the weight being its expected cost. When a stage fails, the stages downstream of it are cancelled without running,
+ * and the pipeline fails with the error of that stage. The start and end of every stage are recorded,
+ * see {@link #getTimingSummary()}.
+ *
+ * @param <T> The type of the result of the pipeline.
+ */
+public class StagePipeline<T> extends SwingWorker<T, Void> implements ProgressReporting {
+    /**
+     * The work of a stage.
+     *
+     * @param <R> The type of the output of the stage.
+     */
+    @FunctionalInterface
+    public interface StageFunction<R> {
+        /**
+         * @param context Gives the outputs of the dependencies and the progress counter of the stage.
+         * @return The output of the stage.
+         * @throws Exception If the stage fails; the stages downstream are then cancelled.
+         */
+        R run(Context context) throws Exception;
+    }
+
+    /**
+     * State of a stage.
+     */
+    public enum State {
+        PENDING, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    /**
+     * The executor the stages run on.
+     */
+    private final Executor executor;
+
+    /**
+     * The stages in the order they were added, which is a topological order.
+     */
+    private final List<Stage<?>> stages = new ArrayList<>();
+
+    /**
+     * Progress of the pipeline, with a stage per pipeline stage.
+     */
+    private final ProgressTracker progress = new ProgressTracker();
+
+    /**
+     * The stage whose output is the result of the pipeline.
+     */
+    private Stage<T> resultStage;
+
+    /**
+     * The first stage that failed, used as the error of the whole pipeline.
+     */
+    private final AtomicReference<Stage<?>> failedStage = new AtomicReference<>();
+
+    /**
+     * Time the pipeline started, in nanoseconds.
+     */
+    private volatile long startTime;
+
+    /**
+     * Creates the pipeline that runs the stages on the common pool.
+     */
+    StagePipeline() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor The executor the stages run on.
+     */
+    StagePipeline(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a stage. All the stages must be added before the pipeline is started.
+     *
+     * @param name         The name of the stage, used in the errors and the timings.
+     * @param weight       The expected cost of the stage relative to the other stages.
+     * @param totalUnits   Number of units the stage reports through {@link Context#getProgress()};
+     *                     whatever is not reported is counted when the stage is done.
+     * @param function     The work of the stage.
+     * @param dependencies The stages whose outputs this stage needs; they must already be added.
+     * @param <R>          The type of the output of the stage.
+     * @return The handle of the stage to depend on and to read its output with.
+     */
+    public <R> Stage<R> addStage(
+            String name, double weight, long totalUnits, StageFunction<R> function, Stage<?>... dependencies
+    ) {
+        if (getState() != StateValue.PENDING) {
+            throw new IllegalStateException("The pipeline has already started");
+        }
+        for (Stage<?> dependency : dependencies) {
+            if (dependency.pipeline != this) {
+                throw new IllegalArgumentException("Stage " + dependency.name + " is not in this pipeline");
+            }
+        }
+        Stage<R> stage = new Stage<>(this, name, progress.addStage(name, weight, totalUnits), totalUnits,
+                function, dependencies);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Sets the stage whose output is the result of the pipeline; the last added stage by default.
+     *
+     * @param stage The stage.
+     */
+    public void setResultStage(Stage<T> stage) {
+        if (stage.pipeline != this) {
+            throw new IllegalArgumentException("Stage " + stage.name + " is not in this pipeline");
+        }
+        resultStage = stage;
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progress;
+    }
+
+    /**
+     * @return The stages in the order they were added.
+     */
+    public List<Stage<?>> getStages() {
+        return List.copyOf(stages);
+    }
+
+    /**
+     * @return One line per stage with its state, its start relative to the start of the pipeline and its duration.
+     */
+    public String getTimingSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Stage<?> stage : stages) {
+            summary.append(String.format("%-16s %-9s", stage.name, stage.state));
+            if (stage.startTime != 0) {
+                summary.append(String.format(" start %7.1f ms", (stage.startTime - startTime) / 1e6));
+            }
+            if (stage.endTime != 0) {
+                summary.append(String.format(", took %7.1f ms", stage.getDurationNanos() / 1e6));
+            }
+            summary.append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T doInBackground() throws Exception {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("The pipeline has no stages");
+        }
+        Stage<T> result = resultStage != null ? resultStage : (Stage<T>) stages.get(stages.size() - 1);
+        startTime = System.nanoTime();
+        for (Stage<?> stage : stages) {
+            stage.schedule();
+        }
+        try {
+            CompletableFuture.allOf(stages.stream().map(stage -> stage.future).toArray(CompletableFuture[]::new))
+                    .get();
+        } catch (ExecutionException e) {
+            Stage<?> failed = failedStage.get();
+            if (failed == null) throw e;
+            throw new Exception("Stage " + failed.name + " failed: " + failed.error.getMessage(), failed.error);
+        }
+        return result.output;
+    }
+
+    /**
+     * Gives a running stage the outputs of its dependencies and its progress counter.
+     */
+    public static class Context {
+        private final StagePipeline<?> pipeline;
+        private final Stage<?> stage;
+        private final ProgressCounter counter;
+
+        private Context(StagePipeline<?> pipeline, Stage<?> stage, ProgressCounter counter) {
+            this.pipeline = pipeline;
+            this.stage = stage;
+            this.counter = counter;
+        }
+
+        /**
+         * @param dependency A stage the running stage declared as its dependency.
+         * @param <U>        The type of the output of the dependency.
+         * @return The output of the dependency.
+         */
+        public <U> U get(Stage<U> dependency) {
+            for (Stage<?> declared : stage.dependencies) {
+                if (declared == dependency) return dependency.output;
+            }
+            throw new IllegalArgumentException(
+                    "Stage " + stage.name + " does not depend on stage " + dependency.name
+            );
+        }
+
+        /**
+         * @return The progress counter of the stage; must be used only by the thread running the stage.
+         */
+        public ProgressCounter getProgress() {
+            return counter;
+        }
+
+        /**
+         * Long stages should check it regularly and stop early.
+         *
+         * @return Whether the pipeline was cancelled.
+         */
+        public boolean isCancelled() {
+            return pipeline.isCancelled();
+        }
+    }
+
+    /**
+     * A stage of the pipeline: the handle to declare dependencies with, and its state and timings.
+     *
+     * @param <R> The type of the output of the stage.
+     */
+    public static class Stage<R> {
+        private final StagePipeline<?> pipeline;
+        private final String name;
+        private final ProgressTracker.Stage progress;
+        private final long totalUnits;
+        private final StageFunction<R> function;
+        private final Stage<?>[] dependencies;
+
+        private CompletableFuture<Void> future;
+        private volatile State state = State.PENDING;
+        private volatile long startTime, endTime;
+        private volatile Throwable error;
+
+        /**
+         * The output of the stage; visible to the dependent stages as they start after the future completes.
+         */
+        private R output;
+
+        private Stage(StagePipeline<?> pipeline, String name, ProgressTracker.Stage progress, long totalUnits,
+                      StageFunction<R> function, Stage<?>[] dependencies) {
+            this.pipeline = pipeline;
+            this.name = name;
+            this.progress = progress;
+            this.totalUnits = totalUnits;
+            this.function = function;
+            this.dependencies = dependencies.clone();
+        }
+
+        /**
+         * Schedules the stage to run once all its dependencies are done, or to be cancelled if one of them is not.
+         */
+        private void schedule() {
+            CompletableFuture<?>[] waitFor = new CompletableFuture<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                waitFor[i] = dependencies[i].future;
+            }
+            future = CompletableFuture.allOf(waitFor).handleAsync((ignored, upstreamError) -> {
+                if (upstreamError != null || pipeline.isCancelled()) {
+                    state = State.CANCELLED;
+                    throw new CancellationException("Stage " + name + " is cancelled");
+                }
+                run();
+                return null;
+            }, pipeline.executor);
+        }
+
+        /**
+         * Runs the stage, recording its timings and counting the units it did not report.
+         */
+        private void run() {
+            state = State.RUNNING;
+            startTime = System.nanoTime();
+            ProgressCounter counter = progress.newCounter();
+            try {
+                output = function.run(new Context(pipeline, this, counter));
+                counter.add(Math.max(0, totalUnits - counter.get()));
+                state = State.DONE;
+            } catch (Exception e) {
+                error = e;
+                state = State.FAILED;
+                pipeline.failedStage.compareAndSet(null, this);
+                throw new IllegalStateException(e);
+            } finally {
+                endTime = System.nanoTime();
+            }
+        }
+
+        /**
+         * @return The name of the stage.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The current state of the stage.
+         */
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return How long the stage ran in nanoseconds, or -1 if it has not finished.
+         */
+        public long getDurationNanos() {
+            return endTime == 0 ? -1 : endTime - startTime;
+        }
+    }
+}
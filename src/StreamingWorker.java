@@ -0,0 +1,52 @@
+import javax.swing.*;
+
+/**
+ * SwingWorker that produces its result incrementally, emitting chunks (rows, tiles, partial aggregates)
+ * while it runs. {@link PreprocessingManager} delivers the chunks to the result view on the EDT
+ * in batches at a bounded rate.
+ * <p>
+ * Unlike {@link SwingWorker#publish(Object[])}, emitting blocks while too many chunks are waiting
+ * for the EDT, so the producer is slowed down to the pace of the view instead of queueing unbounded work.
+ *
+ * @param <T> The type of the final result.
+ * @param <C> The type of the chunks.
+ */
+public abstract class StreamingWorker<T, C> extends SwingWorker<T, Void> {
+    /**
+     * Default number of chunks that may wait for the EDT.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final ChunkChannel<C> channel;
+
+    /**
+     * Creates the worker with the default capacity.
+     */
+    protected StreamingWorker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximal number of chunks waiting for the EDT before {@link #emit(Object)} blocks.
+     */
+    protected StreamingWorker(int capacity) {
+        channel = new ChunkChannel<>(capacity);
+    }
+
+    /**
+     * Emits a chunk of the result. Must be called from {@link #doInBackground()}.
+     *
+     * @param chunk The chunk.
+     * @throws InterruptedException If the worker is cancelled while waiting for the EDT to catch up.
+     */
+    protected void emit(C chunk) throws InterruptedException {
+        channel.put(chunk);
+    }
+
+    /**
+     * @return The channel the chunks are delivered through.
+     */
+    ChunkChannel<C> getChannel() {
+        return channel;
+    }
+}
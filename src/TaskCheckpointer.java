@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically saves the state of a running {@link CheckpointableTask} into a {@link CheckpointStore}.
+ * <p>
+ * The interval adapts to the cost of the checkpoints: after every checkpoint the next one is scheduled
+ * so that checkpointing takes at most {@link #TIME_BUDGET} of the time, but not more often than
+ * {@link #MIN_INTERVAL} and not less often than {@link #MAX_INTERVAL}.
+ * All the file operations of all the tasks run on one background thread, so they never race with each other.
+ */
+class TaskCheckpointer {
+    /**
+     * Share of the time that checkpointing may take.
+     */
+    static final double TIME_BUDGET = 0.02;
+
+    /**
+     * Bounds of the interval between checkpoints, in milliseconds.
+     */
+    static final long MIN_INTERVAL = 500, MAX_INTERVAL = 60_000;
+
+    /**
+     * The thread of all the checkpoint operations.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "checkpointer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CheckpointStore store;
+    private final CheckpointableTask task;
+    private final String key;
+
+    /**
+     * The next scheduled checkpoint; null if checkpointing is stopped. Accessed only on the scheduler thread.
+     */
+    private ScheduledFuture<?> next;
+
+    /**
+     * @param store The store to save the checkpoints into.
+     * @param task  The task to checkpoint.
+     * @param key   The key of the checkpoint of the task.
+     */
+    TaskCheckpointer(CheckpointStore store, CheckpointableTask task, String key) {
+        this.store = store;
+        this.task = task;
+        this.key = key;
+    }
+
+    /**
+     * Restores the task from the latest checkpoint, if there is one. Called before the task runs.
+     *
+     * @return Whether the task was restored.
+     */
+    boolean restore() {
+        try {
+            byte[] state = store.load(key);
+            if (state == null) return false;
+            task.restoreCheckpoint(state);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Can't restore the checkpoint: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Starts checkpointing the running task.
+     */
+    void start() {
+        SCHEDULER.execute(() -> {
+            if (next == null) schedule(MIN_INTERVAL);
+        });
+    }
+
+    /**
+     * Saves the last checkpoint of the paused or cancelled task and stops checkpointing.
+     */
+    void stop() {
+        SCHEDULER.execute(() -> {
+            if (next == null) return;
+            next.cancel(false);
+            next = null;
+            checkpoint();
+        });
+    }
+
+    /**
+     * Stops checkpointing the finished task and removes its checkpoint, as the result does not need it anymore.
+     */
+    void finish() {
+        SCHEDULER.execute(() -> {
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+            try {
+                store.delete(key);
+            } catch (IOException e) {
+                System.out.println("Can't remove the checkpoint: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @param delay Delay of the next checkpoint, in milliseconds.
+     */
+    private void schedule(long delay) {
+        next = SCHEDULER.schedule(() -> {
+            long interval = (long) (checkpoint() / TIME_BUDGET / 1_000_000);
+            schedule(Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, interval)));
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves the state of the task.
+     *
+     * @return The time the checkpoint took, in nanoseconds.
+     */
+    private long checkpoint() {
+        long start = System.nanoTime();
+        try {
+            store.save(key, task.saveCheckpoint());
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Can't save the checkpoint: " + e.getMessage());
+        }
+        return System.nanoTime() - start;
+    }
+}
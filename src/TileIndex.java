@@ -0,0 +1,181 @@
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial index of rectangular tiles that finds the tile containing a point in constant expected time,
+ * and the tiles intersecting an area in time proportional to the area.
+ * <p>
+ * The covered area is divided into a uniform grid of cells about the size of an average tile,
+ * and every cell stores the tiles overlapping it in a flat array (cell i owns the range
+ * [cellStart[i], cellStart[i + 1]) of cellTiles). A lookup checks only the few tiles of one cell
+ * and does not allocate.
+ */
+class TileIndex {
+    /**
+     * Bound of the number of cells, so that very uneven tiles do not blow up the memory.
+     */
+    private static final int MAX_CELLS = 1 << 20;
+
+    /**
+     * Bounds of the tiles; the index of a tile is its position in this list.
+     */
+    private final List<Rectangle> tiles = new ArrayList<>();
+
+    /**
+     * Whether the cells have to be rebuilt before the next lookup.
+     */
+    private boolean dirty = false;
+
+    private int originX, originY;
+    private int cellWidth = 1, cellHeight = 1;
+    private int columns = 0, rows = 0;
+    private int[] cellStart = new int[1];
+    private int[] cellTiles = new int[0];
+
+    /**
+     * Adds a tile.
+     *
+     * @param bounds The bounds of the tile.
+     * @return The index of the tile.
+     */
+    int add(Rectangle bounds) {
+        tiles.add(new Rectangle(bounds));
+        dirty = true;
+        return tiles.size() - 1;
+    }
+
+    /**
+     * @return Number of tiles.
+     */
+    int size() {
+        return tiles.size();
+    }
+
+    /**
+     * @param tile The index of the tile.
+     * @return The bounds of the tile; must not be modified.
+     */
+    Rectangle getBounds(int tile) {
+        return tiles.get(tile);
+    }
+
+    /**
+     * Finds the tile containing the point. If tiles overlap, the one added first wins.
+     *
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @return The index of the tile, or -1 if no tile contains the point.
+     */
+    int find(int x, int y) {
+        if (dirty) rebuild();
+        int column = Math.floorDiv(x - originX, cellWidth);
+        int row = Math.floorDiv(y - originY, cellHeight);
+        if (column < 0 || column >= columns || row < 0 || row >= rows) return -1;
+
+        int cell = row * columns + column;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            if (tiles.get(cellTiles[i]).contains(x, y)) return cellTiles[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Calls the action for every tile intersecting the area, once per tile, checking only the cells of the area.
+     *
+     * @param area   The area, for example the clip of a repaint.
+     * @param action The action accepting the index of a tile.
+     */
+    void forEachIntersecting(Rectangle area, IntConsumer action) {
+        if (dirty) rebuild();
+        if (columns == 0 || area.isEmpty()) return;
+        int firstColumn = Math.max(0, Math.floorDiv(area.x - originX, cellWidth));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(area.x + area.width - 1 - originX, cellWidth));
+        int firstRow = Math.max(0, Math.floorDiv(area.y - originY, cellHeight));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(area.y + area.height - 1 - originY, cellHeight));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    Rectangle tile = tiles.get(cellTiles[i]);
+                    if (!tile.intersects(area)) continue;
+                    // a tile in several cells is reported only by the cell of the corner of its overlap with the area
+                    int x = Math.max(tile.x, area.x);
+                    int y = Math.max(tile.y, area.y);
+                    if (Math.floorDiv(x - originX, cellWidth) == column
+                            && Math.floorDiv(y - originY, cellHeight) == row) {
+                        action.accept(cellTiles[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the cells from the current tiles.
+     */
+    private void rebuild() {
+        dirty = false;
+        if (tiles.isEmpty()) {
+            columns = rows = 0;
+            return;
+        }
+
+        Rectangle area = new Rectangle(tiles.get(0));
+        long totalWidth = 0, totalHeight = 0;
+        for (Rectangle tile : tiles) {
+            area.add(tile);
+            totalWidth += tile.width;
+            totalHeight += tile.height;
+        }
+        originX = area.x;
+        originY = area.y;
+        cellWidth = (int) Math.max(1, totalWidth / tiles.size());
+        cellHeight = (int) Math.max(1, totalHeight / tiles.size());
+        while ((long) ceilDiv(area.width, cellWidth) * ceilDiv(area.height, cellHeight) > MAX_CELLS) {
+            cellWidth *= 2;
+            cellHeight *= 2;
+        }
+        columns = Math.max(1, ceilDiv(area.width, cellWidth));
+        rows = Math.max(1, ceilDiv(area.height, cellHeight));
+
+        // first pass counts the tiles of every cell, second pass fills them in
+        cellStart = new int[columns * rows + 1];
+        for (Rectangle tile : tiles) {
+            forEachCell(tile, cell -> cellStart[cell + 1]++);
+        }
+        for (int i = 0; i < columns * rows; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+        cellTiles = new int[cellStart[columns * rows]];
+        int[] filled = new int[columns * rows];
+        for (int i = 0; i < tiles.size(); i++) {
+            int tile = i;
+            forEachCell(tiles.get(i), cell -> cellTiles[cellStart[cell] + filled[cell]++] = tile);
+        }
+    }
+
+    /**
+     * Calls the action for every cell the tile overlaps.
+     *
+     * @param tile   The bounds of the tile.
+     * @param action The action accepting the index of a cell.
+     */
+    private void forEachCell(Rectangle tile, IntConsumer action) {
+        if (tile.isEmpty()) return;
+        int firstColumn = (tile.x - originX) / cellWidth;
+        int lastColumn = Math.min(columns - 1, (tile.x + tile.width - 1 - originX) / cellWidth);
+        int firstRow = (tile.y - originY) / cellHeight;
+        int lastRow = Math.min(rows - 1, (tile.y + tile.height - 1 - originY) / cellHeight);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                action.accept(row * columns + column);
+            }
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,452 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Panel that draws an image file stretched to its size without ever decoding the full resolution unless needed.
+ * <p>
+ * Only the header is read when the panel is created. The image is decoded in the background with
+ * {@link ImageReadParam} subsampling, at the coarsest power-of-two level that is not smaller than the panel,
+ * in tiles of {@link #TILE_SIZE} pixels of the level. If the format is tiled, each tile is read with its own
+ * source region. Otherwise a source region is decoded from the start of the stream, so the whole level is decoded
+ * at once if it fits into the cache, or else a row of tiles at once, and the tiles are cut from it.
+ * Decoded tiles are kept in a bounded LRU cache. A tiny subsampled version of the whole image is decoded first
+ * and drawn in place of the tiles that are still loading.
+ */
+public class TiledImagePanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Size of a tile in pixels of its level.
+     */
+    static final int TILE_SIZE = 512;
+
+    /**
+     * The placeholder is subsampled to be at most this large.
+     */
+    static final int PLACEHOLDER_SIZE = 256;
+
+    /**
+     * Default bound of the memory used by the cache of tiles, in bytes.
+     */
+    static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The stream of the image file; kept open while the panel is used.
+     */
+    private final ImageInputStream input;
+
+    /**
+     * The reader of the image; used only by the decoder thread.
+     */
+    private final ImageReader reader;
+
+    /**
+     * Size of the image at the full resolution.
+     */
+    private final int imageWidth, imageHeight;
+
+    /**
+     * Whether the format stores the image in tiles, so that a region can be decoded without the rest of the image.
+     */
+    private final boolean tiledFormat;
+
+    /**
+     * Single thread that decodes the placeholder and the tiles, as the reader is not thread-safe.
+     */
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "image-decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Maximal number of bytes the cache of tiles may use.
+     */
+    private final long maxCacheBytes;
+
+    /**
+     * Decoded tiles in access order, by {@link #getTileKey(int, int, int)}.
+     */
+    private final LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of bytes currently used by the cache of tiles.
+     */
+    private long cacheBytes = 0;
+
+    /**
+     * Keys of the tiles being decoded.
+     */
+    private final Set<Long> loading = new HashSet<>();
+
+    /**
+     * Subsampling the current size needs; decoding of tiles of other levels that are still queued is skipped.
+     */
+    private volatile int wantedSubsampling = 1;
+
+    /**
+     * The whole image subsampled to at most {@link #PLACEHOLDER_SIZE}; null until it is decoded.
+     */
+    private BufferedImage placeholder;
+
+    /**
+     * Subsampling of the placeholder.
+     */
+    private final int placeholderSubsampling;
+
+    /**
+     * The clip of the painted graphics; reused, so that painting does not allocate it.
+     */
+    private final Rectangle clip = new Rectangle();
+
+    /**
+     * Creates the panel with the default cache bound.
+     *
+     * @param file The image file.
+     * @throws IOException If the file cannot be opened or its format is not supported.
+     */
+    TiledImagePanel(Path file) throws IOException {
+        this(file, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Creates the panel: reads the size of the image and starts decoding the placeholder.
+     *
+     * @param file          The image file.
+     * @param maxCacheBytes Maximal number of bytes the cache of tiles may use.
+     * @throws IOException If the file cannot be opened or its format is not supported.
+     */
+    TiledImagePanel(Path file, long maxCacheBytes) throws IOException {
+        if (maxCacheBytes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxCacheBytes);
+        }
+        this.maxCacheBytes = maxCacheBytes;
+        // the panel has no children, and a layout manager would only allocate insets on every resize
+        setLayout(null);
+        input = ImageIO.createImageInputStream(file.toFile());
+        if (input == null) {
+            throw new IOException("Can't open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + file);
+        }
+        reader = readers.next();
+        reader.setInput(input, false, true);
+        imageWidth = reader.getWidth(0);
+        imageHeight = reader.getHeight(0);
+        tiledFormat = reader.isImageTiled(0);
+
+        placeholderSubsampling = Math.max(1, ceilDiv(Math.max(imageWidth, imageHeight), PLACEHOLDER_SIZE));
+        decoder.execute(() -> {
+            BufferedImage decoded = decode(0, 0, imageWidth, imageHeight, placeholderSubsampling);
+            if (decoded == null) return;
+            SwingUtilities.invokeLater(() -> {
+                placeholder = decoded;
+                repaint();
+            });
+        });
+    }
+
+    /**
+     * @return The size of the image at the full resolution, read from the header.
+     */
+    public Dimension getImageSize() {
+        return new Dimension(imageWidth, imageHeight);
+    }
+
+    /**
+     * Stops decoding and closes the image file. The panel must not be shown after that.
+     */
+    public void dispose() {
+        decoder.shutdownNow();
+        // the decoder thread may still be reading, so the file is closed once it stops
+        CompletableFuture.runAsync(() -> {
+            try {
+                decoder.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                reader.dispose();
+                input.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.out.println("Can't close the image: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        Graphics2D g2d = (Graphics2D) g;
+        RenderQuality.of(this).apply(g2d);
+        int subsampling = getSubsampling(width, height);
+        wantedSubsampling = subsampling;
+        int levelWidth = ceilDiv(imageWidth, subsampling);
+        int levelHeight = ceilDiv(imageHeight, subsampling);
+        int columns = ceilDiv(levelWidth, TILE_SIZE);
+        int rows = ceilDiv(levelHeight, TILE_SIZE);
+        // left as is if the graphics is not clipped
+        clip.setBounds(0, 0, width, height);
+        g.getClipBounds(clip);
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                // tile edges in the panel, computed from the same formula so that neighbours share them
+                int x1 = (int) ((long) column * TILE_SIZE * width / levelWidth);
+                int y1 = (int) ((long) row * TILE_SIZE * height / levelHeight);
+                int x2 = (int) ((long) Math.min((column + 1) * TILE_SIZE, levelWidth) * width / levelWidth);
+                int y2 = (int) ((long) Math.min((row + 1) * TILE_SIZE, levelHeight) * height / levelHeight);
+                if (!clip.intersects(x1, y1, x2 - x1, y2 - y1)) continue;
+
+                BufferedImage tile = getTile(subsampling, column, row);
+                if (tile != null) {
+                    g2d.drawImage(tile, x1, y1, x2, y2, 0, 0, tile.getWidth(), tile.getHeight(), null);
+                } else if (placeholder != null) {
+                    drawPlaceholder(g2d, x1, y1, x2, y2, subsampling, column, row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the part of the placeholder that covers the tile.
+     */
+    private void drawPlaceholder(Graphics2D g2d, int x1, int y1, int x2, int y2, int subsampling, int column, int row) {
+        long tileSource = (long) TILE_SIZE * subsampling;
+        int sx1 = (int) (column * tileSource / placeholderSubsampling);
+        int sy1 = (int) (row * tileSource / placeholderSubsampling);
+        int sx2 = (int) Math.min(placeholder.getWidth(), ceilDiv((column + 1) * tileSource, placeholderSubsampling));
+        int sy2 = (int) Math.min(placeholder.getHeight(), ceilDiv((row + 1) * tileSource, placeholderSubsampling));
+        g2d.drawImage(placeholder, x1, y1, x2, y2, sx1, sy1, sx2, sy2, null);
+    }
+
+    /**
+     * @param width  The width of the panel.
+     * @param height The height of the panel.
+     * @return The largest power of two the image can be subsampled by and still be not smaller than the panel.
+     */
+    private int getSubsampling(int width, int height) {
+        int subsampling = 1;
+        while (subsampling < (1 << 30)
+                && ceilDiv(imageWidth, subsampling * 2) >= width
+                && ceilDiv(imageHeight, subsampling * 2) >= height) {
+            subsampling *= 2;
+        }
+        return subsampling;
+    }
+
+    /**
+     * Returns the tile from the cache, or starts decoding it in the background.
+     *
+     * @param subsampling The subsampling of the level.
+     * @param column      The column of the tile in the level.
+     * @param row         The row of the tile in the level.
+     * @return The decoded tile, or null if it is not decoded yet.
+     */
+    private BufferedImage getTile(int subsampling, int column, int row) {
+        long key = getTileKey(subsampling, column, row);
+        BufferedImage tile = tiles.get(key);
+        if (tile != null || loading.contains(key)) return tile;
+        if (tiledFormat) {
+            loadTile(subsampling, column, row);
+        } else {
+            loadBand(subsampling, row);
+        }
+        return null;
+    }
+
+    /**
+     * Starts decoding the tile with its own source region.
+     *
+     * @param subsampling The subsampling of the level.
+     * @param column      The column of the tile in the level.
+     * @param row         The row of the tile in the level.
+     */
+    private void loadTile(int subsampling, int column, int row) {
+        long key = getTileKey(subsampling, column, row);
+        loading.add(key);
+        int x = column * TILE_SIZE * subsampling;
+        int y = row * TILE_SIZE * subsampling;
+        int regionWidth = Math.min(TILE_SIZE * subsampling, imageWidth - x);
+        int regionHeight = Math.min(TILE_SIZE * subsampling, imageHeight - y);
+        decoder.execute(() -> {
+            // the size changed while the tile was queued, so it is not needed anymore
+            BufferedImage decoded = subsampling == wantedSubsampling
+                    ? decode(x, y, regionWidth, regionHeight, subsampling)
+                    : null;
+            SwingUtilities.invokeLater(() -> {
+                loading.remove(key);
+                if (decoded == null) return;
+                putTile(key, decoded);
+                repaint();
+            });
+        });
+    }
+
+    /**
+     * Starts decoding the whole level, or the row of tiles if the level does not fit into the cache,
+     * and cutting it into tiles.
+     *
+     * @param subsampling The subsampling of the level.
+     * @param row         The row of the needed tile in the level.
+     */
+    private void loadBand(int subsampling, int row) {
+        int levelWidth = ceilDiv(imageWidth, subsampling);
+        int levelHeight = ceilDiv(imageHeight, subsampling);
+        int columns = ceilDiv(levelWidth, TILE_SIZE);
+        // the pixel size is not known before decoding, so four bytes are assumed
+        boolean wholeLevel = (long) levelWidth * levelHeight * 4 <= maxCacheBytes;
+        int firstRow = wholeLevel ? 0 : row;
+        int lastRow = wholeLevel ? ceilDiv(levelHeight, TILE_SIZE) : row + 1;
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int column = 0; column < columns; column++) {
+                loading.add(getTileKey(subsampling, column, r));
+            }
+        }
+
+        int y = firstRow * TILE_SIZE * subsampling;
+        int regionHeight = Math.min(lastRow * TILE_SIZE * subsampling, imageHeight) - y;
+        decoder.execute(() -> {
+            BufferedImage[] decoded = null;
+            if (subsampling == wantedSubsampling) {
+                BufferedImage band = decode(0, y, imageWidth, regionHeight, subsampling);
+                if (band != null) {
+                    decoded = cut(band, columns, lastRow - firstRow);
+                }
+            }
+            BufferedImage[] cut = decoded;
+            SwingUtilities.invokeLater(() -> {
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int column = 0; column < columns; column++) {
+                        long key = getTileKey(subsampling, column, r);
+                        loading.remove(key);
+                        // the tiles of the band that are still cached are kept
+                        if (cut != null && !tiles.containsKey(key)) {
+                            putTile(key, cut[(r - firstRow) * columns + column]);
+                        }
+                    }
+                }
+                if (cut != null) repaint();
+            });
+        });
+    }
+
+    /**
+     * Copies the tiles out of a decoded band, so that the band itself is not kept by the cache.
+     * Runs on the decoder thread.
+     *
+     * @param band    The decoded rows of tiles.
+     * @param columns Number of tiles in a row.
+     * @param rows    Number of rows of tiles in the band.
+     * @return The tiles, row by row.
+     */
+    private static BufferedImage[] cut(BufferedImage band, int columns, int rows) {
+        ColorModel colorModel = band.getColorModel();
+        BufferedImage[] cut = new BufferedImage[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int x = column * TILE_SIZE;
+                int y = row * TILE_SIZE;
+                int width = Math.min(TILE_SIZE, band.getWidth() - x);
+                int height = Math.min(TILE_SIZE, band.getHeight() - y);
+                WritableRaster raster = band.getRaster().createCompatibleWritableRaster(width, height);
+                raster.setDataElements(0, 0, band.getRaster().createChild(x, y, width, height, 0, 0, null));
+                cut[row * columns + column] = new BufferedImage(
+                        colorModel, raster, colorModel.isAlphaPremultiplied(), null
+                );
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Puts the tile into the cache and removes the least recently used tiles until the cache fits into its bound.
+     *
+     * @param key  The key of the tile.
+     * @param tile The tile.
+     */
+    private void putTile(long key, BufferedImage tile) {
+        long bytes = getBytes(tile);
+        if (bytes > maxCacheBytes) return;
+        tiles.put(key, tile);
+        cacheBytes += bytes;
+        Iterator<Map.Entry<Long, BufferedImage>> iterator = tiles.entrySet().iterator();
+        while (cacheBytes > maxCacheBytes && iterator.hasNext()) {
+            Map.Entry<Long, BufferedImage> eldest = iterator.next();
+            if (eldest.getKey() == key) continue;
+            cacheBytes -= getBytes(eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Decodes a region of the image. Runs on the decoder thread.
+     *
+     * @param x           The x coordinate of the region at the full resolution.
+     * @param y           The y coordinate of the region at the full resolution.
+     * @param width       The width of the region at the full resolution.
+     * @param height      The height of the region at the full resolution.
+     * @param subsampling Only every subsampling-th pixel of every subsampling-th row is decoded.
+     * @return The decoded region, or null if it cannot be decoded.
+     */
+    private BufferedImage decode(int x, int y, int width, int height, int subsampling) {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, width, height));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        try {
+            return reader.read(0, param);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Can't decode the image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param subsampling The subsampling of the level.
+     * @param column      The column of the tile in the level.
+     * @param row         The row of the tile in the level.
+     * @return The key of the tile in the cache.
+     */
+    private static long getTileKey(int subsampling, int column, int row) {
+        return ((long) Integer.numberOfTrailingZeros(subsampling) << 48) | ((long) row << 24) | column;
+    }
+
+    /**
+     * @param image The image.
+     * @return Approximate number of bytes the image uses.
+     */
+    private static long getBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, image.getColorModel().getPixelSize() / 8);
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,168 @@
+import java.awt.*;
+
+/**
+ * Layout that places the children in the middle cell of a 3x3 grid whose rows and columns share the extra space
+ * by weights, and stretches them to the cell. The outer cells are empty, so the result is the same as
+ * a {@link GridBagLayout} with glue around a component filling the middle cell, without building
+ * the constraint matrix on every layout.
+ * <p>
+ * The preferred and minimum sizes of the children are cached and asked again only when a child is invalidated
+ * (as Swing does when the content of a component changes) or the children change.
+ * The bounds are computed only when the size of the container changes.
+ */
+class WeightedCenterLayout implements LayoutManager {
+    /**
+     * Weights of the rows and the columns; the middle one is the cell of the children.
+     */
+    private final int[] verticalWeights, horizontalWeights;
+
+    /**
+     * The children the sizes are cached for.
+     */
+    private Component[] children = new Component[0];
+
+    /**
+     * Cached largest preferred and minimum size of the children.
+     */
+    private int preferredWidth, preferredHeight, minimumWidth, minimumHeight;
+
+    /**
+     * Size of the container the cell was computed for; -1 if it was not computed yet.
+     */
+    private int layoutWidth = -1, layoutHeight = -1;
+
+    /**
+     * The computed middle cell.
+     */
+    private int cellX, cellY, cellWidth, cellHeight;
+
+    /**
+     * @param verticalWeights   Weights of the top, middle and bottom rows.
+     * @param horizontalWeights Weights of the left, middle and right columns.
+     */
+    WeightedCenterLayout(int[] verticalWeights, int[] horizontalWeights) {
+        if (verticalWeights.length != 3 || horizontalWeights.length != 3) {
+            throw new IllegalArgumentException("Three weights are needed for the rows and the columns");
+        }
+        this.verticalWeights = verticalWeights.clone();
+        this.horizontalWeights = horizontalWeights.clone();
+    }
+
+    @Override
+    public void addLayoutComponent(String name, Component comp) {
+    }
+
+    @Override
+    public void removeLayoutComponent(Component comp) {
+    }
+
+    @Override
+    public Dimension preferredLayoutSize(Container parent) {
+        updateSizes(parent);
+        Insets insets = parent.getInsets();
+        return new Dimension(
+                preferredWidth + insets.left + insets.right,
+                preferredHeight + insets.top + insets.bottom
+        );
+    }
+
+    @Override
+    public Dimension minimumLayoutSize(Container parent) {
+        updateSizes(parent);
+        Insets insets = parent.getInsets();
+        return new Dimension(
+                minimumWidth + insets.left + insets.right,
+                minimumHeight + insets.top + insets.bottom
+        );
+    }
+
+    @Override
+    public void layoutContainer(Container parent) {
+        boolean changed = updateSizes(parent);
+        if (changed || parent.getWidth() != layoutWidth || parent.getHeight() != layoutHeight) {
+            layoutWidth = parent.getWidth();
+            layoutHeight = parent.getHeight();
+            computeCell(parent.getInsets());
+        }
+        for (Component child : children) {
+            child.setBounds(cellX, cellY, cellWidth, cellHeight);
+        }
+    }
+
+    /**
+     * Computes the middle cell like {@link GridBagLayout} does: every row and column starts from the size
+     * of its content (preferred, or minimum if the container is smaller than preferred), the difference to
+     * the container is shared by the weights, and what is lost to rounding is split between the sides.
+     * The part of the cell outside the container on the left and the top is cut off,
+     * and an empty cell is moved to the origin.
+     *
+     * @param insets The insets of the container.
+     */
+    private void computeCell(Insets insets) {
+        int width = layoutWidth - insets.left - insets.right;
+        int height = layoutHeight - insets.top - insets.bottom;
+        boolean preferredFits = width >= preferredWidth && height >= preferredHeight;
+        int contentWidth = preferredFits ? preferredWidth : minimumWidth;
+        int contentHeight = preferredFits ? preferredHeight : minimumHeight;
+
+        int left = share(width - contentWidth, horizontalWeights, 0, 0);
+        cellWidth = share(width - contentWidth, horizontalWeights, 1, contentWidth);
+        int right = share(width - contentWidth, horizontalWeights, 2, 0);
+        int top = share(height - contentHeight, verticalWeights, 0, 0);
+        cellHeight = share(height - contentHeight, verticalWeights, 1, contentHeight);
+        int bottom = share(height - contentHeight, verticalWeights, 2, 0);
+
+        cellX = insets.left + (width - (left + cellWidth + right)) / 2 + left;
+        cellY = insets.top + (height - (top + cellHeight + bottom)) / 2 + top;
+        if (cellX < 0) {
+            cellWidth += cellX;
+            cellX = 0;
+        }
+        if (cellY < 0) {
+            cellHeight += cellY;
+            cellY = 0;
+        }
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            cellX = cellY = cellWidth = cellHeight = 0;
+        }
+    }
+
+    /**
+     * @param difference The space to share between the rows or columns; negative if it is missing.
+     * @param weights    The weights of the rows or columns.
+     * @param index      The index of the row or column.
+     * @param base       The size of the content of the row or column.
+     * @return The size of the row or column, not negative.
+     */
+    private static int share(int difference, int[] weights, int index, int base) {
+        int total = weights[0] + weights[1] + weights[2];
+        if (total == 0) return base;
+        return Math.max(0, base + (int) ((double) difference * weights[index] / total));
+    }
+
+    /**
+     * Asks the children for their sizes again if they changed or were invalidated.
+     *
+     * @param parent The container.
+     * @return Whether the sizes were asked again.
+     */
+    private boolean updateSizes(Container parent) {
+        boolean changed = parent.getComponentCount() != children.length;
+        for (int i = 0; !changed && i < children.length; i++) {
+            changed = parent.getComponent(i) != children[i] || !children[i].isValid();
+        }
+        if (!changed) return false;
+
+        children = parent.getComponents();
+        preferredWidth = preferredHeight = minimumWidth = minimumHeight = 0;
+        for (Component child : children) {
+            Dimension preferred = child.getPreferredSize();
+            Dimension minimum = child.getMinimumSize();
+            preferredWidth = Math.max(preferredWidth, preferred.width);
+            preferredHeight = Math.max(preferredHeight, preferred.height);
+            minimumWidth = Math.max(minimumWidth, minimum.width);
+            minimumHeight = Math.max(minimumHeight, minimum.height);
+        }
+        return true;
+    }
+}